@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.Builder;
+import lombok.Value;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+// снимок бронирования на момент архивации: вещь и арендатор могли с тех пор измениться или исчезнуть
+@Value
+@Builder
+public class ArchivedBooking {
+    Long id;
+    LocalDateTime start;
+    LocalDateTime end;
+    BookingStatus status;
+    Long itemId;
+    String itemName;
+    String itemDescription;
+    Long ownerId;
+    Long bookerId;
+    String bookerName;
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.booking.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Холодный архив завершенных бронирований в колоночных файлах на локальном диске.
+ * Заголовки всех файлов держатся в памяти, поэтому поиск по владельцу открывает только файлы,
+ * в диапазон которых попадает искомый id, а поиск по арендатору - еще и прошедшие фильтр Блума.
+ */
+@Service
+@Slf4j
+public class BookingArchive {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final List<SegmentHeader> segments = new CopyOnWriteArrayList<>();
+    // растет с каждым новым файлом: входит в ETag списков бронирований, которые дополняются архивом
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter scannedCounter;
+    private final Counter skippedCounter;
+
+    public BookingArchive(@Value("${shareit.bookings.archive.dir:bookings-archive}") Path directory,
+                          MeterRegistry meterRegistry) {
+        this.directory = directory;
+        this.scannedCounter = segmentCounter(meterRegistry, "scanned");
+        this.skippedCounter = segmentCounter(meterRegistry, "skipped");
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(SUFFIX)).sorted().toList()) {
+                segments.add(SegmentFormat.readHeader(file));
+                generation.incrementAndGet();
+            }
+        }
+        log.info("Архив бронирований: {} файлов в {}", segments.size(), directory);
+    }
+
+    // файл пишется во временный и переименовывается: читатели не видят недописанных файлов
+    public void append(List<ArchivedBooking> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        // порции упорядочены по владельцу, а не по id: имя строится из крайних id порции
+        LongSummaryStatistics ids = rows.stream().mapToLong(ArchivedBooking::getId).summaryStatistics();
+        String name = "bookings-" + ids.getMin() + "-" + ids.getMax();
+        Path temp = directory.resolve(name + ".tmp");
+        Path target = directory.resolve(name + SUFFIX);
+
+        SegmentFormat.write(temp, rows);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segments.add(SegmentFormat.readHeader(target));
+        generation.incrementAndGet();
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public List<ArchivedBooking> findByBookerId(long bookerId) {
+        return find(segment -> segment.mayContainBooker(bookerId), id -> id == bookerId, id -> true);
+    }
+
+    public List<ArchivedBooking> findByItemOwnerId(long ownerId) {
+        return find(segment -> segment.mayContainOwner(ownerId), id -> true, id -> id == ownerId);
+    }
+
+    private List<ArchivedBooking> find(Predicate<SegmentHeader> zoneMap,
+                                       LongPredicate bookerFilter,
+                                       LongPredicate ownerFilter) {
+        List<ArchivedBooking> result = new ArrayList<>();
+        for (SegmentHeader segment : segments) {
+            if (!zoneMap.test(segment)) {
+                skippedCounter.increment();
+                continue;
+            }
+            scannedCounter.increment();
+            try {
+                result.addAll(SegmentFormat.read(segment, bookerFilter, ownerFilter));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось прочитать архив " + segment.getPath(), e);
+            }
+        }
+        return result;
+    }
+
+    private static Counter segmentCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("shareit.bookings.archive.segments")
+                .description("Файлы архива бронирований: прочитанные и отсеченные по карте зон")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
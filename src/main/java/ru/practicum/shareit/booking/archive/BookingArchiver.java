@@ -0,0 +1,105 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Переносит бронирования, завершившиеся раньше чем after-months назад, из базы в архив.
+// Порция сначала пишется в файл, затем удаляется из базы в той же транзакции: если удаление не зафиксируется,
+// строки окажутся и в базе, и в архиве, а при чтении дубликаты отбрасываются по id.
+@Service
+@Slf4j
+public class BookingArchiver {
+
+    private final BookingRepository bookingRepository;
+    private final BookingArchive archive;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final int afterMonths;
+    private final int batchSize;
+
+    public BookingArchiver(BookingRepository bookingRepository,
+                           BookingArchive archive,
+                           PlatformTransactionManager transactionManager,
+                           ShardRouter shardRouter,
+                           @Value("${shareit.bookings.archive.enabled:true}") boolean enabled,
+                           @Value("${shareit.bookings.archive.after-months:24}") int afterMonths,
+                           @Value("${shareit.bookings.archive.batch-size:5000}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.archive = archive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.afterMonths = afterMonths;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${shareit.bookings.archive.cron:0 30 3 * * *}")
+    public void run() {
+        if (enabled) {
+            LocalDateTime cutoff = LocalDateTime.now().minusMonths(afterMonths);
+            shardRouter.forEachShard(shard -> archiveFinishedBefore(cutoff));
+        }
+    }
+
+    // переносит бронирования шарда текущего потока
+    public int archiveFinishedBefore(LocalDateTime cutoff) {
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> moveBatch(cutoff));
+            total += moved;
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            log.info("В архив перенесено {} бронирований, завершившихся до {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int moveBatch(LocalDateTime cutoff) {
+        List<Booking> bookings = bookingRepository.findArchivable(
+                BookingPhase.FINISHED, cutoff, PageRequest.of(0, batchSize));
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            archive.append(bookings.stream().map(BookingArchiver::toArchived).toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать архив бронирований", e);
+        }
+        bookingRepository.deleteAllByIdIn(bookings.stream().map(Booking::getId).toList());
+        return bookings.size();
+    }
+
+    private static ArchivedBooking toArchived(Booking booking) {
+        return ArchivedBooking.builder()
+                .id(booking.getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .status(booking.getStatus())
+                .itemId(booking.getItem().getId())
+                .itemName(booking.getItem().getName())
+                .itemDescription(booking.getItem().getDescription())
+                .ownerId(booking.getItem().getOwner().getId())
+                .bookerId(booking.getBooker().getId())
+                .bookerName(booking.getBooker().getName())
+                .build();
+    }
+}
@@ -0,0 +1,285 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Колоночный формат файла архива бронирований.
+ * <pre>
+ * заголовок (без сжатия): MAGIC, число строк, min/max booker_id, min/max owner_id,
+ *   фильтр Блума по booker_id (число слов и слова)
+ * тело (gzip), строки упорядочены по owner_id, booker_id, id; колонки по очереди:
+ *   booker_id, owner_id            - идут первыми, по ним фильтруются строки
+ *   id (дельты), item_id
+ *   start, end                     - секунды эпохи UTC и наносекунды
+ *   status                         - словарь имен и байт-код на строку
+ *   item_name, item_description, booker_name
+ * </pre>
+ * Однотипные значения подряд сжимаются заметно лучше построчной записи, а чтение с предикатом
+ * распаковывает остальные колонки, только если в колонках-ключах нашлась хотя бы одна строка.
+ * Архиватор выбирает порции по владельцу, поэтому диапазон owner_id у файла узкий; арендаторы
+ * в такой порции разбросаны по всему диапазону id, и для них файл отсекается фильтром Блума.
+ */
+@UtilityClass
+class SegmentFormat {
+
+    static final int MAGIC = 0x53424B32;
+    // первая версия формата: без фильтра Блума и без упорядочивания строк
+    static final int MAGIC_V1 = 0x53424B31;
+
+    private static final int BLOOM_HASHES = 3;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+    private static final int BLOOM_MIN_WORDS = 16;
+
+    static void write(Path path, List<ArchivedBooking> unsorted) throws IOException {
+        List<ArchivedBooking> rows = unsorted.stream()
+                .sorted(Comparator.comparing(ArchivedBooking::getOwnerId)
+                        .thenComparing(ArchivedBooking::getBookerId)
+                        .thenComparing(ArchivedBooking::getId))
+                .toList();
+        long minBooker = Long.MAX_VALUE;
+        long maxBooker = Long.MIN_VALUE;
+        long minOwner = Long.MAX_VALUE;
+        long maxOwner = Long.MIN_VALUE;
+        for (ArchivedBooking row : rows) {
+            minBooker = Math.min(minBooker, row.getBookerId());
+            maxBooker = Math.max(maxBooker, row.getBookerId());
+            minOwner = Math.min(minOwner, row.getOwnerId());
+            maxOwner = Math.max(maxOwner, row.getOwnerId());
+        }
+
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(path))) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeInt(rows.size());
+            header.writeLong(minBooker);
+            header.writeLong(maxBooker);
+            header.writeLong(minOwner);
+            header.writeLong(maxOwner);
+            long[] bloom = bookerBloom(rows);
+            header.writeInt(bloom.length);
+            for (long word : bloom) {
+                header.writeLong(word);
+            }
+            header.flush();
+
+            GZIPOutputStream gzip = new GZIPOutputStream(file);
+            DataOutputStream body = new DataOutputStream(gzip);
+            for (ArchivedBooking row : rows) {
+                body.writeLong(row.getBookerId());
+            }
+            for (ArchivedBooking row : rows) {
+                body.writeLong(row.getOwnerId());
+            }
+            long previousId = 0;
+            for (ArchivedBooking row : rows) {
+                body.writeLong(row.getId() - previousId);
+                previousId = row.getId();
+            }
+            for (ArchivedBooking row : rows) {
+                body.writeLong(row.getItemId());
+            }
+            writeTimes(body, rows, true);
+            writeTimes(body, rows, false);
+
+            BookingStatus[] statuses = BookingStatus.values();
+            body.writeByte(statuses.length);
+            for (BookingStatus status : statuses) {
+                body.writeUTF(status.name());
+            }
+            for (ArchivedBooking row : rows) {
+                body.writeByte(row.getStatus().ordinal());
+            }
+
+            for (ArchivedBooking row : rows) {
+                body.writeUTF(nullToEmpty(row.getItemName()));
+            }
+            for (ArchivedBooking row : rows) {
+                body.writeUTF(nullToEmpty(row.getItemDescription()));
+            }
+            for (ArchivedBooking row : rows) {
+                body.writeUTF(nullToEmpty(row.getBookerName()));
+            }
+            body.flush();
+            gzip.finish();
+        }
+    }
+
+    static SegmentHeader readHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return readHeader(path, in);
+        }
+    }
+
+    // bookerFilter и ownerFilter применяются к колонкам-ключам до распаковки остальных колонок
+    static List<ArchivedBooking> read(SegmentHeader header, LongPredicate bookerFilter, LongPredicate ownerFilter)
+            throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(header.getPath()))) {
+            DataInputStream plain = new DataInputStream(file);
+            int rowCount = readHeader(header.getPath(), plain).getRowCount();
+
+            DataInputStream body = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)));
+            long[] bookerIds = readLongs(body, rowCount);
+            long[] ownerIds = readLongs(body, rowCount);
+
+            boolean[] matches = new boolean[rowCount];
+            int matched = 0;
+            for (int i = 0; i < rowCount; i++) {
+                matches[i] = bookerFilter.test(bookerIds[i]) && ownerFilter.test(ownerIds[i]);
+                if (matches[i]) {
+                    matched++;
+                }
+            }
+            if (matched == 0) {
+                return List.of();
+            }
+
+            long[] ids = readLongs(body, rowCount);
+            for (int i = 1; i < rowCount; i++) {
+                ids[i] += ids[i - 1];
+            }
+            long[] itemIds = readLongs(body, rowCount);
+            LocalDateTime[] starts = readTimes(body, rowCount);
+            LocalDateTime[] ends = readTimes(body, rowCount);
+
+            int dictionarySize = body.readUnsignedByte();
+            BookingStatus[] dictionary = new BookingStatus[dictionarySize];
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary[i] = BookingStatus.valueOf(body.readUTF());
+            }
+            byte[] statusCodes = new byte[rowCount];
+            body.readFully(statusCodes);
+
+            String[] itemNames = readStrings(body, rowCount);
+            String[] itemDescriptions = readStrings(body, rowCount);
+            String[] bookerNames = readStrings(body, rowCount);
+
+            List<ArchivedBooking> result = new ArrayList<>(matched);
+            for (int i = 0; i < rowCount; i++) {
+                if (!matches[i]) {
+                    continue;
+                }
+                result.add(ArchivedBooking.builder()
+                        .id(ids[i])
+                        .start(starts[i])
+                        .end(ends[i])
+                        .status(dictionary[statusCodes[i]])
+                        .itemId(itemIds[i])
+                        .itemName(itemNames[i])
+                        .itemDescription(itemDescriptions[i])
+                        .ownerId(ownerIds[i])
+                        .bookerId(bookerIds[i])
+                        .bookerName(bookerNames[i])
+                        .build());
+            }
+            return result;
+        }
+    }
+
+    private static SegmentHeader readHeader(Path path, DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_V1) {
+            throw new IOException("Файл " + path + " не является архивом бронирований");
+        }
+        int rowCount = in.readInt();
+        long minBooker = in.readLong();
+        long maxBooker = in.readLong();
+        long minOwner = in.readLong();
+        long maxOwner = in.readLong();
+        long[] bloom = magic == MAGIC ? readLongs(in, in.readInt()) : new long[0];
+        return new SegmentHeader(path, rowCount, minBooker, maxBooker, minOwner, maxOwner, bloom);
+    }
+
+    static boolean bloomMayContain(long[] bloom, long key) {
+        long bits = (long) bloom.length * Long.SIZE;
+        long hash = mix(key);
+        int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod((int) hash + (long) i * step, bits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] bookerBloom(List<ArchivedBooking> rows) {
+        long distinct = rows.stream().mapToLong(ArchivedBooking::getBookerId).distinct().count();
+        int words = (int) Math.max(BLOOM_MIN_WORDS, distinct * BLOOM_BITS_PER_KEY / Long.SIZE + 1);
+        long[] bloom = new long[words];
+        long bits = (long) words * Long.SIZE;
+        for (ArchivedBooking row : rows) {
+            long hash = mix(row.getBookerId());
+            int step = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod((int) hash + (long) i * step, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        return bloom;
+    }
+
+    // финализатор SplitMix64: соседние id дают независимые биты
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void writeTimes(DataOutputStream out, List<ArchivedBooking> rows, boolean start) throws IOException {
+        for (ArchivedBooking row : rows) {
+            out.writeLong((start ? row.getStart() : row.getEnd()).toEpochSecond(ZoneOffset.UTC));
+        }
+        for (ArchivedBooking row : rows) {
+            out.writeInt((start ? row.getStart() : row.getEnd()).getNano());
+        }
+    }
+
+    private static LocalDateTime[] readTimes(DataInputStream in, int rowCount) throws IOException {
+        long[] seconds = readLongs(in, rowCount);
+        LocalDateTime[] times = new LocalDateTime[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            times[i] = LocalDateTime.ofEpochSecond(seconds[i], in.readInt(), ZoneOffset.UTC);
+        }
+        return times;
+    }
+
+    private static long[] readLongs(DataInputStream in, int rowCount) throws IOException {
+        long[] values = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static String[] readStrings(DataInputStream in, int rowCount) throws IOException {
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
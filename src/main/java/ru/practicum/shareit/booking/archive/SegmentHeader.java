@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+// несжатый заголовок файла архива: карта зон по арендатору и владельцу
+// позволяет пропустить файл, не распаковывая его
+@Value
+class SegmentHeader {
+    Path path;
+    int rowCount;
+    long minBookerId;
+    long maxBookerId;
+    long minOwnerId;
+    long maxOwnerId;
+    // фильтр Блума по booker_id; пустой у файлов первой версии формата
+    long[] bookerBloom;
+
+    boolean mayContainBooker(long bookerId) {
+        return bookerId >= minBookerId && bookerId <= maxBookerId
+                && (bookerBloom.length == 0 || SegmentFormat.bloomMayContain(bookerBloom, bookerId));
+    }
+
+    boolean mayContainOwner(long ownerId) {
+        return ownerId >= minOwnerId && ownerId <= maxOwnerId;
+    }
+}
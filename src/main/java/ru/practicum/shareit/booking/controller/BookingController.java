@@ -5,12 +5,23 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.OwnerBookingStatsDto;
+import ru.practicum.shareit.booking.service.BookingExportService;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingStatsService;
+import ru.practicum.shareit.common.ExportFormat;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
 
 import java.util.List;
 
@@ -22,6 +33,9 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingStatsService bookingStatsService;
+    private final BookingExportService bookingExportService;
+    private final ShardRouter shardRouter;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -29,7 +43,9 @@ public class BookingController {
             @Valid @RequestBody BookingDto bookingDto,
             @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
         log.info("POST /bookings - создание бронирования пользователем ID: {}", userId);
-        return bookingService.createBooking(bookingDto, userId);
+        // бронирование хранится на шарде владельца вещи, а не арендатора
+        return shardRouter.onShard(shardRouter.shardOf(bookingDto.getItemId()),
+                () -> bookingService.createBooking(bookingDto, userId));
     }
 
     @PatchMapping("/{bookingId}")
@@ -45,8 +61,13 @@ public class BookingController {
     @GetMapping("/{bookingId}")
     public BookingResponseDto getBookingById(
             @PathVariable @Positive Long bookingId,
-            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            WebRequest request) {
         log.info("GET /bookings/{} - получение бронирования пользователем ID: {}", bookingId, userId);
+        if (bookingService.getBookingTag(bookingId, userId).filter(tag -> tag.checkNotModified(request)).isPresent()) {
+            log.debug("GET /bookings/{} - не изменилось, 304", bookingId);
+            return null;
+        }
         return bookingService.getBookingById(bookingId, userId);
     }
 
@@ -55,8 +76,14 @@ public class BookingController {
             @RequestParam(defaultValue = "ALL") String state,
             @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            WebRequest request) {
         log.info("GET /bookings?state={} - получение бронирований пользователя ID: {}", state, userId);
+        if (bookingService.getUserBookingsTag(userId, state, from, size)
+                .filter(tag -> tag.checkNotModified(request)).isPresent()) {
+            log.debug("GET /bookings - бронирования пользователя ID {} не изменились, 304", userId);
+            return null;
+        }
         return bookingService.getUserBookings(userId, state, from, size);
     }
 
@@ -65,8 +92,59 @@ public class BookingController {
             @RequestParam(defaultValue = "ALL") String state,
             @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            WebRequest request) {
         log.info("GET /bookings/owner?state={} - получение бронирований для вещей владельца ID: {}", state, userId);
+        if (bookingService.getOwnerBookingsTag(userId, state, from, size)
+                .filter(tag -> tag.checkNotModified(request)).isPresent()) {
+            log.debug("GET /bookings/owner - бронирования вещей владельца ID {} не изменились, 304", userId);
+            return null;
+        }
         return bookingService.getOwnerBookings(userId, state, from, size);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUserBookings(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            @RequestParam(defaultValue = "NDJSON") String format) {
+        log.info("GET /bookings/export?format={} - выгрузка бронирований пользователя ID: {}", format, userId);
+        ExportFormat exportFormat = ExportFormat.from(format);
+        bookingExportService.checkUserExists(userId);
+        return exportResponse(exportFormat, "bookings-" + userId,
+                out -> bookingExportService.exportBookerBookings(userId, exportFormat, out));
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            @RequestParam(defaultValue = "NDJSON") String format) {
+        log.info("GET /bookings/owner/export?format={} - выгрузка бронирований вещей владельца ID: {}", format, userId);
+        ExportFormat exportFormat = ExportFormat.from(format);
+        bookingExportService.checkUserExists(userId);
+        // тело пишется в другом потоке, шард запроса переносим явно
+        int shard = ShardContext.current();
+        return exportResponse(exportFormat, "owner-bookings-" + userId,
+                out -> shardRouter.onShard(shard, () -> {
+                    bookingExportService.exportOwnerBookings(userId, exportFormat, out);
+                    return null;
+                }));
+    }
+
+    @GetMapping("/owner/stats")
+    public OwnerBookingStatsDto getOwnerStats(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        log.info("GET /bookings/owner/stats - получение статистики бронирований владельца ID: {}", userId);
+        return bookingStatsService.getOwnerStats(userId);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(ExportFormat format, String baseName,
+                                                                       StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(format.fileName(baseName))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ItemBookingCounts {
+    private Long itemId;
+    private Long ownerId;
+    private Long total;
+    private Long waiting;
+    private Long approved;
+    private Long rejected;
+    private Long past;
+    private Long current;
+    private Long future;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemBookingStatsDto {
+    private Long itemId;
+    private Long all;
+    private Long waiting;
+    private Long approved;
+    private Long rejected;
+    private Long current;
+    private Long past;
+    private Long future;
+    private Long bookedMinutes;
+}
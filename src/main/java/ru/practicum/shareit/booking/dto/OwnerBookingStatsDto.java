@@ -0,0 +1,25 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerBookingStatsDto {
+    private Long ownerId;
+    private long all;
+    private long waiting;
+    private long approved;
+    private long rejected;
+    private long current;
+    private long past;
+    private long future;
+    private long bookedMinutes;
+    private List<ItemBookingStatsDto> items;
+}
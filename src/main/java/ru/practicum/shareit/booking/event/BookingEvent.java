@@ -0,0 +1,37 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.Builder;
+import lombok.Value;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class BookingEvent {
+    BookingEventType type;
+    Long bookingId;
+    Long itemId;
+    Long ownerId;
+    Long bookerId;
+    BookingStatus status;
+    BookingPhase phase;
+    LocalDateTime start;
+    LocalDateTime end;
+
+    public static BookingEvent of(BookingEventType type, Booking booking) {
+        return BookingEvent.builder()
+                .type(type)
+                .bookingId(booking.getId())
+                .itemId(booking.getItem().getId())
+                .ownerId(booking.getItem().getOwner().getId())
+                .bookerId(booking.getBooker().getId())
+                .status(booking.getStatus())
+                .phase(booking.getPhase())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.booking.event;
+
+public enum BookingEventType {
+    CREATED,    // создано бронирование
+    APPROVED,   // подтверждено владельцем
+    REJECTED    // отклонено владельцем
+}
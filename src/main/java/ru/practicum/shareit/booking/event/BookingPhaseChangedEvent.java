@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.Builder;
+import lombok.Value;
+import ru.practicum.shareit.booking.model.BookingPhase;
+
+@Value
+@Builder
+public class BookingPhaseChangedEvent {
+    Long bookingId;
+    Long itemId;
+    BookingPhase from;
+    BookingPhase to;
+}
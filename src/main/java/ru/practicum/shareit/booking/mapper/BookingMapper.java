@@ -1,18 +1,36 @@
 package ru.practicum.shareit.booking.mapper;
 
 import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.booking.archive.ArchivedBooking;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Function;
 
 @UtilityClass
 public class BookingMapper {
 
     public static BookingResponseDto toBookingResponseDto(Booking booking) {
+        return toBookingResponseDto(booking, User::getName);
+    }
+
+    // имена арендаторов берутся из заранее загруженной пачки, поэтому ленивый прокси арендатора не инициализируется
+    public static BookingResponseDto toBookingResponseDto(Booking booking, Map<Long, UserDto> bookers) {
+        return toBookingResponseDto(booking, booker -> {
+            UserDto loaded = bookers.get(booker.getId());
+            return loaded != null ? loaded.getName() : booker.getName();
+        });
+    }
+
+    private static BookingResponseDto toBookingResponseDto(Booking booking, Function<User, String> bookerName) {
         if (booking == null) {
             return null;
         }
@@ -21,7 +39,7 @@ public class BookingMapper {
         if (booking.getBooker() != null) {
             bookerDto = BookingResponseDto.BookerDto.builder()
                     .id(booking.getBooker().getId())
-                    .name(booking.getBooker().getName())
+                    .name(bookerName.apply(booking.getBooker()))
                     .build();
         }
         BookingResponseDto.ItemDto itemDto = null;
@@ -45,6 +63,25 @@ public class BookingMapper {
                 .build();
     }
 
+    public static BookingResponseDto toBookingResponseDto(ArchivedBooking booking) {
+        return BookingResponseDto.builder()
+                .id(booking.getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .status(booking.getStatus())
+                .booker(BookingResponseDto.BookerDto.builder()
+                        .id(booking.getBookerId())
+                        .name(booking.getBookerName())
+                        .build())
+                .item(BookingResponseDto.ItemDto.builder()
+                        .id(booking.getItemId())
+                        .name(booking.getItemName())
+                        .description(booking.getItemDescription())
+                        .ownerId(booking.getOwnerId())
+                        .build())
+                .build();
+    }
+
     public static Booking toBooking(BookingDto bookingDto, Item item, User booker) {
         if (bookingDto == null) {
             return null;
@@ -57,6 +94,7 @@ public class BookingMapper {
                 .item(item)
                 .booker(booker)
                 .status(bookingDto.getStatus() != null ? bookingDto.getStatus() : BookingStatus.WAITING)
+                .phase(BookingPhase.of(bookingDto.getStart(), bookingDto.getEnd(), LocalDateTime.now()))
                 .build();
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
@@ -39,5 +40,17 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 10)
     private BookingStatus status;
-}
 
+    // фаза по времени поддерживается планировщиком, чтобы фильтры CURRENT/PAST/FUTURE были равенством по индексу
+    @Enumerated(EnumType.STRING)
+    @Column(name = "phase", nullable = false, length = 10)
+    private BookingPhase phase;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated", nullable = false)
+    private LocalDateTime updated;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.model;
+
+import java.time.LocalDateTime;
+
+public enum BookingPhase {
+    UPCOMING,   // еще не началось
+    ACTIVE,     // идет сейчас
+    FINISHED;   // завершилось
+
+    public static BookingPhase of(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (end.isBefore(now)) {
+            return FINISHED;
+        }
+        if (start.isAfter(now)) {
+            return UPCOMING;
+        }
+        return ACTIVE;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.booking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "item_booking_stats", schema = "public")
+public class ItemBookingStats {
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "total_count", nullable = false)
+    private Long totalCount;
+
+    @Column(name = "waiting_count", nullable = false)
+    private Long waitingCount;
+
+    @Column(name = "approved_count", nullable = false)
+    private Long approvedCount;
+
+    @Column(name = "rejected_count", nullable = false)
+    private Long rejectedCount;
+
+    @Column(name = "past_count", nullable = false)
+    private Long pastCount;
+
+    @Column(name = "current_count", nullable = false)
+    private Long currentCount;
+
+    @Column(name = "future_count", nullable = false)
+    private Long futureCount;
+
+    // суммарная длительность подтвержденных бронирований — аналог выручки при отсутствии цены
+    @Column(name = "booked_minutes", nullable = false)
+    private Long bookedMinutes;
+
+    @Column(name = "reconciled")
+    private LocalDateTime reconciled;
+
+    // растет с каждым приращением счетчиков: пересчет записывает строку, только если версия не изменилась
+    @Column(name = "version", nullable = false)
+    private Long version;
+}
@@ -1,99 +1,223 @@
 package ru.practicum.shareit.booking.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.common.ResourceVersion;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
+    // бронирования помеченных на удаление вещей и арендаторов не показываются: сами вещь и арендатор скрыты
+    // @SQLRestriction, и ленивая загрузка упала бы; строки дочищает TombstonePurger
+    String VISIBLE = " AND b.item.deletedAt IS NULL AND b.booker.deletedAt IS NULL";
+
+    long countByItemId(Long itemId);
+
+    long countByBookerId(Long bookerId);
+
+    @Query("SELECT COUNT(b) FROM Booking b WHERE b.item.owner.id = :ownerId")
+    long countByItemOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT b FROM Booking b WHERE b.id = :bookingId" + VISIBLE)
+    Optional<Booking> findVisibleById(@Param("bookingId") Long bookingId);
+
     @EntityGraph(attributePaths = {"item", "item.owner", "booker"})
-    List<Booking> findAllByBookerId(Long bookerId, Sort sort);
+    @Query("SELECT b FROM Booking b WHERE b.booker.id = :bookerId" + VISIBLE)
+    List<Booking> findAllByBookerId(@Param("bookerId") Long bookerId, Sort sort);
 
     @Query("SELECT b FROM Booking b " +
-            "WHERE b.item.owner.id = :ownerId")
+            "WHERE b.item.owner.id = :ownerId" + VISIBLE)
     List<Booking> findAllByItemOwnerId(@Param("ownerId") Long ownerId, Sort sort);
 
-    List<Booking> findAllByBookerIdAndStatus(Long bookerId, BookingStatus status, Sort sort);
+    // выгрузка всей истории: курсор с порциями по fetch size, без накопления списка в памяти
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item JOIN FETCH b.booker " +
+            "WHERE b.booker.id = :bookerId" + VISIBLE + " " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<Booking> streamAllByBookerId(@Param("bookerId") Long bookerId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item i JOIN FETCH b.booker " +
+            "WHERE i.owner.id = :ownerId" + VISIBLE + " " +
+            "ORDER BY b.start DESC, b.id DESC")
+    Stream<Booking> streamAllByItemOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT b FROM Booking b WHERE b.booker.id = :bookerId AND b.status = :status" + VISIBLE)
+    List<Booking> findAllByBookerIdAndStatus(
+            @Param("bookerId") Long bookerId,
+            @Param("status") BookingStatus status,
+            Sort sort);
 
     @Query("SELECT b FROM Booking b " +
-            "WHERE b.item.owner.id = :ownerId AND b.status = :status")
+            "WHERE b.item.owner.id = :ownerId AND b.status = :status" + VISIBLE)
     List<Booking> findAllByItemOwnerIdAndStatus(
             @Param("ownerId") Long ownerId,
             @Param("status") BookingStatus status,
             Sort sort);
 
-    // Текущие бронирования
+    // бронирования пользователя в заданной фазе (CURRENT/PAST/FUTURE)
+    @EntityGraph(attributePaths = {"item", "item.owner", "booker"})
+    @Query("SELECT b FROM Booking b WHERE b.booker.id = :bookerId AND b.phase = :phase" + VISIBLE)
+    List<Booking> findAllByBookerIdAndPhase(
+            @Param("bookerId") Long bookerId,
+            @Param("phase") BookingPhase phase,
+            Sort sort);
+
+    // бронирования вещей владельца в заданной фазе
     @Query("SELECT b FROM Booking b " +
-            "WHERE b.booker.id = :userId " +
-            "AND b.start <= :now AND b.end >= :now")
-    List<Booking> findCurrentBookingsByBooker(
-            @Param("userId") Long userId,
-            @Param("now") LocalDateTime now,
+            "WHERE b.item.owner.id = :ownerId AND b.phase = :phase" + VISIBLE)
+    List<Booking> findAllByItemOwnerIdAndPhase(
+            @Param("ownerId") Long ownerId,
+            @Param("phase") BookingPhase phase,
             Sort sort);
 
-    // Будущие бронирования
+    // ACTIVE/UPCOMING начинаются не раньше since (сейчас минус максимальная длительность):
+    // в секционированной по start_date таблице это отсекает все старые секции
+    @EntityGraph(attributePaths = {"item", "item.owner", "booker"})
     @Query("SELECT b FROM Booking b " +
-            "WHERE b.booker.id = :userId " +
-            "AND b.start > :now")
-    List<Booking> findFutureBookingsByBooker(
-            @Param("userId") Long userId,
-            @Param("now") LocalDateTime now,
+            "WHERE b.booker.id = :bookerId AND b.phase = :phase AND b.start >= :since" + VISIBLE)
+    List<Booking> findAllByBookerIdAndPhaseAndStartGreaterThanEqual(
+            @Param("bookerId") Long bookerId,
+            @Param("phase") BookingPhase phase,
+            @Param("since") LocalDateTime since,
             Sort sort);
 
-    // Прошедшие бронирования
     @Query("SELECT b FROM Booking b " +
-            "WHERE b.booker.id = :userId " +
-            "AND b.end < :now")
-    List<Booking> findPastBookingsByBooker(
-            @Param("userId") Long userId,
-            @Param("now") LocalDateTime now,
+            "WHERE b.item.owner.id = :ownerId AND b.phase = :phase AND b.start >= :since" + VISIBLE)
+    List<Booking> findAllByItemOwnerIdAndPhaseStartingFrom(
+            @Param("ownerId") Long ownerId,
+            @Param("phase") BookingPhase phase,
+            @Param("since") LocalDateTime since,
             Sort sort);
 
-    // бронировал ли пользователь вещь и завершилось ли бронирование
-    @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END " +
+    // бронирования, у которых граница фазы наступает до горизонта планировщика
+    @Query("SELECT b.id AS id, b.item.id AS itemId, b.start AS startDate, b.end AS endDate, b.phase AS phase " +
             "FROM Booking b " +
-            "WHERE b.item.id = :itemId " +
-            "AND b.booker.id = :userId " +
-            "AND b.status = 'APPROVED' " +
-            "AND b.end < :now")
-    boolean existsByItemIdAndBookerIdAndEndBefore(
-            @Param("itemId") Long itemId,
-            @Param("userId") Long userId,
-            @Param("now") LocalDateTime now);
+            "WHERE (b.phase = :upcoming AND b.start <= :horizon) " +
+            "OR (b.phase = :active AND b.end < :horizon)")
+    List<BookingPhaseView> findPhaseBoundariesBefore(
+            @Param("horizon") LocalDateTime horizon,
+            @Param("upcoming") BookingPhase upcoming,
+            @Param("active") BookingPhase active);
 
-    // последнее бронирование вещи
-    @Query("SELECT b FROM Booking b " +
-            "WHERE b.item.id = :itemId " +
+    // завершенные бронирования для переноса в архив, сгруппированные по владельцу: каждая порция
+    // ложится в файл архива с узким диапазоном owner_id, и карта зон отсекает остальные файлы
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item i JOIN FETCH i.owner o JOIN FETCH b.booker bk " +
+            "WHERE b.phase = :phase AND b.end < :cutoff " +
+            "ORDER BY o.id, bk.id, b.id")
+    List<Booking> findArchivable(
+            @Param("phase") BookingPhase phase,
+            @Param("cutoff") LocalDateTime cutoff,
+            Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Booking b WHERE b.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    // условный переход: срабатывает только если фаза не изменилась с момента планирования
+    @Modifying
+    @Query("UPDATE Booking b SET b.phase = :to, b.version = b.version + 1, b.updated = LOCAL DATETIME " +
+            "WHERE b.id = :id AND b.phase = :from")
+    int updatePhase(
+            @Param("id") Long id,
+            @Param("from") BookingPhase from,
+            @Param("to") BookingPhase to);
+
+    // есть ли завершенное подтвержденное бронирование; производный exists читает не больше одной строки
+    boolean existsByItemIdAndBookerIdAndStatusAndEndBefore(
+            Long itemId, Long bookerId, BookingStatus status, LocalDateTime now);
+
+    // подтвержденные, но еще не завершенные бронирования: их пар пока нет в comment_eligibility,
+    // а в фильтр комментариев они должны попасть до завершения
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b.item.id, b.booker.id FROM Booking b " +
+            "WHERE b.status = 'APPROVED' AND b.phase <> ru.practicum.shareit.booking.model.BookingPhase.FINISHED")
+    Stream<Object[]> streamUnfinishedApprovedItemBookerPairs();
+
+    // последнее бронирование каждой вещи для карточки вещи: начавшееся раньше now, с самым поздним окончанием
+    // (при равенстве - с большим id); идущее сейчас бронирование тоже считается последним. Не больше строки на вещь
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item JOIN FETCH b.booker " +
+            "WHERE b.item.id IN :itemIds " +
             "AND b.status = 'APPROVED' " +
-            "AND b.start < :now " +
-            "ORDER BY b.end DESC")
-    List<Booking> findLastBookingForItem(
-            @Param("itemId") Long itemId,
+            "AND b.start < :now" + VISIBLE + " " +
+            "AND NOT EXISTS (SELECT o.id FROM Booking o WHERE o.item = b.item AND o.status = 'APPROVED' " +
+            "AND o.booker.deletedAt IS NULL " +
+            "AND o.start < :now AND (o.end > b.end OR (o.end = b.end AND o.id > b.id)))")
+    List<Booking> findLastBookingsForItems(
+            @Param("itemIds") Collection<Long> itemIds,
             @Param("now") LocalDateTime now);
 
-    // следующее бронирование вещи
-    @Query("SELECT b FROM Booking b " +
-            "WHERE b.item.id = :itemId " +
+    // последнее завершенное бронирование каждой вещи для списка вещей владельца и GraphQL: окончание раньше now,
+    // самое позднее (при равенстве - с большим id); идущее сейчас бронирование сюда не попадает
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item JOIN FETCH b.booker " +
+            "WHERE b.item.id IN :itemIds " +
             "AND b.status = 'APPROVED' " +
-            "AND b.start > :now " +
-            "ORDER BY b.start ASC")
-    List<Booking> findNextBookingForItem(
-            @Param("itemId") Long itemId,
+            "AND b.end < :now" + VISIBLE + " " +
+            "AND NOT EXISTS (SELECT o.id FROM Booking o WHERE o.item = b.item AND o.status = 'APPROVED' " +
+            "AND o.booker.deletedAt IS NULL " +
+            "AND o.end < :now AND (o.end > b.end OR (o.end = b.end AND o.id > b.id)))")
+    List<Booking> findLastFinishedBookingsForItems(
+            @Param("itemIds") Collection<Long> itemIds,
             @Param("now") LocalDateTime now);
 
-    @Query("SELECT b FROM Booking b " +
+    // следующее бронирование каждой вещи: ближайшее начало после now (при равенстве - с меньшим id)
+    @Query("SELECT b FROM Booking b JOIN FETCH b.item JOIN FETCH b.booker " +
             "WHERE b.item.id IN :itemIds " +
             "AND b.status = 'APPROVED' " +
-            "ORDER BY b.start DESC")
-    List<Booking> findAllApprovedByItemIds(@Param("itemIds") Collection<Long> itemIds);
-}
\ No newline at end of file
+            "AND b.start > :now" + VISIBLE + " " +
+            "AND NOT EXISTS (SELECT o.id FROM Booking o WHERE o.item = b.item AND o.status = 'APPROVED' " +
+            "AND o.booker.deletedAt IS NULL " +
+            "AND o.start > :now AND (o.start < b.start OR (o.start = b.start AND o.id < b.id)))")
+    List<Booking> findNextBookingsForItems(
+            @Param("itemIds") Collection<Long> itemIds,
+            @Param("now") LocalDateTime now);
+
+    // отпечатки для ETag; в представление бронирования входят вещь и арендатор, поэтому их версии тоже суммируются
+    // отпечатки считаются по тем же видимым строкам, что и ответы: пометка удаления меняет ETag сразу
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(b), MAX(b.id), SUM(b.version + i.version + u.version), MAX(b.updated), MAX(i.updated), MAX(u.updated)) " +
+            "FROM Booking b JOIN b.item i JOIN b.booker u " +
+            "WHERE b.id = :bookingId AND (u.id = :userId OR i.owner.id = :userId) AND i.deletedAt IS NULL AND u.deletedAt IS NULL")
+    ResourceVersion findVersionByIdVisibleTo(@Param("bookingId") Long bookingId, @Param("userId") Long userId);
+
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(b), MAX(b.id), SUM(b.version + i.version + u.version), MAX(b.updated), MAX(i.updated), MAX(u.updated)) " +
+            "FROM Booking b JOIN b.item i JOIN b.booker u " +
+            "WHERE u.id = :bookerId AND i.deletedAt IS NULL AND u.deletedAt IS NULL")
+    ResourceVersion findVersionByBookerId(@Param("bookerId") Long bookerId);
+
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(b), MAX(b.id), SUM(b.version + i.version + u.version), MAX(b.updated), MAX(i.updated), MAX(u.updated)) " +
+            "FROM Booking b JOIN b.item i JOIN b.booker u " +
+            "WHERE i.owner.id = :ownerId AND i.deletedAt IS NULL AND u.deletedAt IS NULL")
+    ResourceVersion findVersionByItemOwnerId(@Param("ownerId") Long ownerId);
+
+    // бронирования вещи для lastBooking/nextBooking в карточке вещи, вместе с версиями арендаторов
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(b), MAX(b.id), SUM(b.version + i.version + u.version), MAX(b.updated), MAX(i.updated), MAX(u.updated)) " +
+            "FROM Booking b JOIN b.item i JOIN b.booker u " +
+            "WHERE i.id = :itemId AND i.deletedAt IS NULL AND u.deletedAt IS NULL")
+    ResourceVersion findVersionByItemId(@Param("itemId") Long itemId);
+}
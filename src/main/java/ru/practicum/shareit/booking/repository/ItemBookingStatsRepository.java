@@ -0,0 +1,119 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.dto.ItemBookingCounts;
+import ru.practicum.shareit.booking.dto.ItemBookingStatsDto;
+import ru.practicum.shareit.booking.model.ItemBookingStats;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ItemBookingStatsRepository extends JpaRepository<ItemBookingStats, Long> {
+
+    // проекция читает значения из базы, минуя возможно устаревшие сущности контекста
+    @Query("SELECT new ru.practicum.shareit.booking.dto.ItemBookingStatsDto(" +
+            "s.itemId, s.totalCount, s.waitingCount, s.approvedCount, s.rejectedCount, " +
+            "s.currentCount, s.pastCount, s.futureCount, s.bookedMinutes) " +
+            "FROM ItemBookingStats s " +
+            "WHERE s.ownerId = :ownerId " +
+            "ORDER BY s.itemId")
+    List<ItemBookingStatsDto> findOwnerStats(@Param("ownerId") Long ownerId);
+
+    // атомарное приращение счетчиков без чтения строки
+    @Modifying
+    @Query("UPDATE ItemBookingStats s SET " +
+            "s.totalCount = s.totalCount + :total, " +
+            "s.waitingCount = s.waitingCount + :waiting, " +
+            "s.approvedCount = s.approvedCount + :approved, " +
+            "s.rejectedCount = s.rejectedCount + :rejected, " +
+            "s.pastCount = s.pastCount + :past, " +
+            "s.currentCount = s.currentCount + :current, " +
+            "s.futureCount = s.futureCount + :future, " +
+            "s.bookedMinutes = s.bookedMinutes + :minutes, " +
+            "s.version = s.version + 1 " +
+            "WHERE s.itemId = :itemId")
+    int applyDelta(@Param("itemId") Long itemId,
+                   @Param("total") long total,
+                   @Param("waiting") long waiting,
+                   @Param("approved") long approved,
+                   @Param("rejected") long rejected,
+                   @Param("past") long past,
+                   @Param("current") long current,
+                   @Param("future") long future,
+                   @Param("minutes") long minutes);
+
+    // пустая строка для вещи; при одновременном создании вторая вставка ничего не делает, а не падает
+    @Modifying
+    @Query(value = "INSERT INTO item_booking_stats (item_id, owner_id, total_count, waiting_count, approved_count, " +
+            "rejected_count, past_count, current_count, future_count, booked_minutes, version) " +
+            "SELECT i.id, i.owner_id, 0, 0, 0, 0, 0, 0, 0, 0, 0 FROM items i WHERE i.id = :itemId " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertEmptyIfAbsent(@Param("itemId") Long itemId);
+
+    // страница вещей с бронированиями для пересчета
+    @Query("SELECT DISTINCT b.item.id FROM Booking b WHERE b.item.id > :afterItemId ORDER BY b.item.id")
+    List<Long> findBookedItemIdsAfter(@Param("afterItemId") Long afterItemId, Pageable pageable);
+
+    // версии строк читаются до подсчета: приращение после этого чтения меняет версию
+    @Query("SELECT s.itemId, s.version FROM ItemBookingStats s WHERE s.itemId IN :itemIds")
+    List<Object[]> findVersions(@Param("itemIds") Collection<Long> itemIds);
+
+    // полный пересчет счетчиков по таблице бронирований для страницы вещей
+    @Query("SELECT new ru.practicum.shareit.booking.dto.ItemBookingCounts(" +
+            "b.item.id, b.item.owner.id, COUNT(b), " +
+            "SUM(CASE WHEN b.status = 'WAITING' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = 'APPROVED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.status = 'REJECTED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.phase = 'FINISHED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.phase = 'ACTIVE' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN b.phase = 'UPCOMING' THEN 1 ELSE 0 END)) " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN :itemIds " +
+            "GROUP BY b.item.id, b.item.owner.id " +
+            "ORDER BY b.item.id")
+    List<ItemBookingCounts> computeStats(@Param("itemIds") Collection<Long> itemIds);
+
+    @Query("SELECT b.item.id, SUM((b.end - b.start) by minute) " +
+            "FROM Booking b " +
+            "WHERE b.status = 'APPROVED' " +
+            "AND b.item.id IN :itemIds " +
+            "GROUP BY b.item.id")
+    List<Object[]> computeBookedMinutes(@Param("itemIds") Collection<Long> itemIds);
+
+    // пересчитанные значения заменяют строку, только если с чтения версии в нее не попало ни одного приращения;
+    // иначе строку оставляют приращениям, а расхождение исправит следующий пересчет
+    @Modifying
+    @Query("UPDATE ItemBookingStats s SET " +
+            "s.totalCount = :#{#stats.totalCount}, " +
+            "s.waitingCount = :#{#stats.waitingCount}, " +
+            "s.approvedCount = :#{#stats.approvedCount}, " +
+            "s.rejectedCount = :#{#stats.rejectedCount}, " +
+            "s.pastCount = :#{#stats.pastCount}, " +
+            "s.currentCount = :#{#stats.currentCount}, " +
+            "s.futureCount = :#{#stats.futureCount}, " +
+            "s.bookedMinutes = :#{#stats.bookedMinutes}, " +
+            "s.reconciled = :#{#stats.reconciled} " +
+            "WHERE s.itemId = :#{#stats.itemId} AND s.version = :version")
+    int replaceIfUnchanged(@Param("stats") ItemBookingStats stats, @Param("version") long version);
+
+    // строки не было при чтении версий: если ее уже вставило первое бронирование вещи, пересчет ее не трогает
+    @Modifying
+    @Query(value = "INSERT INTO item_booking_stats (item_id, owner_id, total_count, waiting_count, approved_count, " +
+            "rejected_count, past_count, current_count, future_count, booked_minutes, reconciled, version) " +
+            "VALUES (:#{#stats.itemId}, :#{#stats.ownerId}, :#{#stats.totalCount}, :#{#stats.waitingCount}, " +
+            ":#{#stats.approvedCount}, :#{#stats.rejectedCount}, :#{#stats.pastCount}, :#{#stats.currentCount}, " +
+            ":#{#stats.futureCount}, :#{#stats.bookedMinutes}, :#{#stats.reconciled}, 0) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("stats") ItemBookingStats stats);
+
+    // строки вещей, у которых не осталось бронирований, удаляются одним запросом без загрузки
+    @Modifying
+    @Query("DELETE FROM ItemBookingStats s WHERE NOT EXISTS (SELECT 1 FROM Booking b WHERE b.item.id = s.itemId)")
+    int deleteStale();
+}
@@ -0,0 +1,97 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.common.ExportFormat;
+import ru.practicum.shareit.common.ExportWriter;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка истории бронирований.
+ * Строки читаются курсором и пишутся в ответ порциями, после каждой порции контекст персистентности
+ * очищается, поэтому память не растет вместе с историей.
+ */
+@Service
+@Slf4j
+public class BookingExportService {
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExportWriter<BookingResponseDto> exportWriter;
+
+    public BookingExportService(BookingRepository bookingRepository,
+                                UserRepository userRepository,
+                                EntityManager entityManager,
+                                ShardRouter shardRouter,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${shareit.bookings.export.chunk-size:500}") int chunkSize) {
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportWriter = new ExportWriter<>(objectMapper, BookingResponseDto.class,
+                List.of("id", "start", "end", "status", "itemId", "itemName", "bookerId", "bookerName"),
+                booking -> Arrays.asList(
+                        String.valueOf(booking.getId()),
+                        String.valueOf(booking.getStart()),
+                        String.valueOf(booking.getEnd()),
+                        String.valueOf(booking.getStatus()),
+                        String.valueOf(booking.getItem().getId()),
+                        booking.getItem().getName(),
+                        String.valueOf(booking.getBooker().getId()),
+                        booking.getBooker().getName()),
+                chunkSize, entityManager::clear);
+    }
+
+    public void exportBookerBookings(Long bookerId, ExportFormat format, OutputStream out) {
+        log.info("Выгрузка бронирований пользователя ID: {} в формате {}", bookerId, format);
+        checkUserExists(bookerId);
+        // бронирования арендатора разнесены по шардам владельцев вещей - выгружаем шарды по очереди
+        export(bookingRepository::streamAllByBookerId, bookerId, format, out, shardRouter.allShards());
+    }
+
+    public void exportOwnerBookings(Long ownerId, ExportFormat format, OutputStream out) {
+        log.info("Выгрузка бронирований вещей владельца ID: {} в формате {}", ownerId, format);
+        checkUserExists(ownerId);
+        export(bookingRepository::streamAllByItemOwnerId, ownerId, format, out, List.of(ShardContext.current()));
+    }
+
+    // проверка до начала записи: после первого байта ответ уже не превратить в 404
+    public void checkUserExists(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NoSuchElementException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+
+    private void export(Function<Long, Stream<Booking>> query, Long userId, ExportFormat format, OutputStream out,
+                        List<Integer> shards) {
+        ExportWriter.Output<BookingResponseDto> output = exportWriter.open(format, out);
+        for (int shard : shards) {
+            shardRouter.onShard(shard, () -> readOnlyTransaction.execute(status ->
+                    output.writeAll(query.apply(userId), BookingMapper::toBookingResponseDto)));
+        }
+        log.info("Выгружено бронирований: {}", output.finish());
+    }
+}
@@ -0,0 +1,236 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+// Обслуживает помесячные секции таблицы bookings (см. db/postgresql/bookings-partitioning.sql):
+// заранее создает секции на months-ahead месяцев вперед и для каждого месяца, строки которого уже лежат
+// в секции по умолчанию (бронирования дальше окна), перенося эти строки в новую секцию; при заданном retention-months
+// отсоединяет старые секции, выгружает их в gzip-CSV в archive-dir и удаляет.
+// Если база не PostgreSQL или таблица не секционирована, ничего не делает.
+// Каждый шард обслуживается отдельно: секционирование и архив у шардов свои.
+@Service
+@Slf4j
+public class BookingPartitionManager {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("bookings_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    private final Map<Integer, Boolean> partitioned = new ConcurrentHashMap<>();
+
+    public BookingPartitionManager(DataSource dataSource,
+                                   ShardRouter shardRouter,
+                                   @Value("${shareit.bookings.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${shareit.bookings.partitions.retention-months:0}") int retentionMonths,
+                                   @Value("${shareit.bookings.partitions.archive-dir:bookings-archive}") Path archiveDir) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = archiveDir;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${shareit.bookings.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        shardRouter.forEachShard(this::maintainShard);
+    }
+
+    private void maintainShard(int shard) {
+        if (!isPartitioned(shard)) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        Set<YearMonth> months = new TreeSet<>(findDefaultPartitionMonths());
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        months.forEach(this::createPartition);
+        if (retentionMonths > 0) {
+            dropExpired(current.minusMonths(retentionMonths), shardArchiveDir(shard));
+        }
+    }
+
+    private boolean isPartitioned(int shard) {
+        return partitioned.computeIfAbsent(shard, key -> {
+            boolean detected = detectPartitioning();
+            if (detected) {
+                log.info("Шард {}: таблица bookings секционирована, секции создаются на {} мес. вперед",
+                        shard, monthsAhead);
+            }
+            return detected;
+        });
+    }
+
+    // секции разных шардов называются одинаково, поэтому архив каждого шарда в своем каталоге
+    private Path shardArchiveDir(int shard) {
+        return shardRouter.getShardCount() == 1 ? archiveDir : archiveDir.resolve("shard-" + shard);
+    }
+
+    private boolean detectPartitioning() {
+        try {
+            String product = jdbcTemplate.execute((Connection connection) ->
+                    connection.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equals(product)) {
+                return false;
+            }
+            Boolean result = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt " +
+                            "JOIN pg_class c ON c.oid = pt.partrelid " +
+                            "WHERE c.relname = 'bookings' AND c.relnamespace = current_schema()::regnamespace)",
+                    Boolean.class);
+            return Boolean.TRUE.equals(result);
+        } catch (Exception e) {
+            log.warn("Не удалось определить секционирование bookings: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // месяцы строк, не попавших ни в одну секцию; секция по умолчанию невелика, поэтому читается целиком
+    private List<YearMonth> findDefaultPartitionMonths() {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass('bookings_default') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(exists)) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(
+                        "SELECT DISTINCT to_char(start_date, 'YYYY-MM') FROM bookings_default", String.class).stream()
+                .map(YearMonth::parse)
+                .toList();
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = "bookings_" + month.format(SUFFIX);
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        try {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+            if (Boolean.TRUE.equals(exists)) {
+                return;
+            }
+            Integer overflow = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings_default " +
+                    "WHERE start_date >= ? AND start_date < ?", Integer.class, from, to);
+            if (overflow == null || overflow == 0) {
+                jdbcTemplate.execute("CREATE TABLE " + partition +
+                        " PARTITION OF bookings FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                return;
+            }
+            // с такими строками в секции по умолчанию PostgreSQL не даст создать секцию: секция по умолчанию
+            // отсоединяется, строки переносятся, и она присоединяется обратно - одним оператором, то есть атомарно
+            jdbcTemplate.execute("DO $$ BEGIN " +
+                    "ALTER TABLE bookings DETACH PARTITION bookings_default; " +
+                    "CREATE TABLE " + partition + " PARTITION OF bookings " +
+                    "FOR VALUES FROM ('" + from + "') TO ('" + to + "'); " +
+                    "INSERT INTO " + partition + " SELECT * FROM bookings_default " +
+                    "WHERE start_date >= '" + from + "' AND start_date < '" + to + "'; " +
+                    "DELETE FROM bookings_default WHERE start_date >= '" + from + "' AND start_date < '" + to + "'; " +
+                    "ALTER TABLE bookings ATTACH PARTITION bookings_default DEFAULT; " +
+                    "END $$");
+            log.info("Создана секция {}, из секции по умолчанию перенесено {} строк", partition, overflow);
+        } catch (Exception e) {
+            log.error("Не удалось создать секцию bookings за {}: {}", month, e.getMessage());
+        }
+    }
+
+    private void dropExpired(YearMonth oldestKept, Path directory) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'bookings' ORDER BY c.relname",
+                String.class);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+
+            // отсоединенная секция остается обычной таблицей: при ошибке выгрузки данные не теряются
+            jdbcTemplate.execute("ALTER TABLE bookings DETACH PARTITION " + partition);
+            try {
+                long rows = archive(partition, directory);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Секция {} выгружена в архив ({} строк) и удалена", partition, rows);
+            } catch (IOException e) {
+                log.error("Секция {} отсоединена, но не выгружена: {}", partition, e.getMessage());
+            }
+        }
+    }
+
+    private long archive(String partition, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(partition + ".csv.gz");
+        long[] rows = {0};
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8))) {
+            jdbcTemplate.query("SELECT * FROM " + partition + " ORDER BY id", resultSet -> {
+                try {
+                    ResultSetMetaData meta = resultSet.getMetaData();
+                    if (rows[0] == 0) {
+                        for (int i = 1; i <= meta.getColumnCount(); i++) {
+                            writer.write((i > 1 ? "," : "") + meta.getColumnName(i));
+                        }
+                        writer.write('\n');
+                    }
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        Object value = resultSet.getObject(i);
+                        writer.write((i > 1 ? "," : "") + (value == null ? "" : value));
+                    }
+                    writer.write('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+        return rows[0];
+    }
+}
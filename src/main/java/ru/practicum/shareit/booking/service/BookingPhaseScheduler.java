@@ -0,0 +1,221 @@
+package ru.practicum.shareit.booking.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.booking.event.BookingEventType;
+import ru.practicum.shareit.booking.event.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.repository.BookingPhaseView;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Переводит бронирования UPCOMING -> ACTIVE -> FINISHED в момент наступления границ.
+// Из базы периодически загружается только окно ближайших границ (horizon), они ждут своего времени в DelayQueue;
+// границы, пропущенные во время простоя, попадают в окно с нулевой задержкой и применяются сразу.
+@Service
+@Slf4j
+public class BookingPhaseScheduler {
+
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final Duration horizon;
+
+    private final DelayQueue<PhaseTransition> queue = new DelayQueue<>();
+    // ключи уже запланированных переходов, чтобы повторная загрузка окна их не дублировала
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+    private volatile Thread worker;
+
+    public BookingPhaseScheduler(BookingRepository bookingRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 ShardRouter shardRouter,
+                                 @Value("${shareit.bookings.phase-scheduler.enabled:true}") boolean enabled,
+                                 @Value("${shareit.bookings.phase-scheduler.horizon:PT10M}") Duration horizon) {
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.horizon = horizon;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || worker != null) {
+            return;
+        }
+        worker = Thread.ofPlatform()
+                .name("booking-phase-scheduler")
+                .daemon()
+                .start(this::runWorker);
+        log.info("Планировщик фаз бронирований запущен, окно загрузки: {}", horizon);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    // окно перезагружается чаще, чем его длина, поэтому ни одна граница не выпадает
+    @Scheduled(fixedDelayString = "${shareit.bookings.phase-scheduler.refresh-interval:PT5M}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now().plus(horizon);
+
+        shardRouter.forEachShard(shard -> {
+            List<BookingPhaseView> due = transactionTemplate.execute(status ->
+                    bookingRepository.findPhaseBoundariesBefore(until, BookingPhase.UPCOMING, BookingPhase.ACTIVE));
+
+            if (due != null) {
+                due.forEach(view -> schedule(view.getId(), view.getItemId(),
+                        view.getStartDate(), view.getEndDate(), view.getPhase()));
+                log.debug("Шард {}: загружено границ фаз бронирований до {}: {}", shard, until, due.size());
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookingCreated(BookingEvent event) {
+        if (!enabled || event.getType() != BookingEventType.CREATED) {
+            return;
+        }
+        schedule(event.getBookingId(), event.getItemId(), event.getStart(), event.getEnd(), event.getPhase());
+    }
+
+    public int getScheduledCount() {
+        return queue.size();
+    }
+
+    private void schedule(Long bookingId, Long itemId, LocalDateTime start, LocalDateTime end, BookingPhase phase) {
+        LocalDateTime boundary;
+        if (phase == BookingPhase.UPCOMING) {
+            boundary = start;
+        } else if (phase == BookingPhase.ACTIVE) {
+            // PAST означает end < now, поэтому переход чуть позже конца
+            boundary = end.plusNanos(1_000_000);
+        } else {
+            return;
+        }
+
+        if (boundary.isAfter(LocalDateTime.now().plus(horizon))) {
+            return;
+        }
+
+        PhaseTransition transition = new PhaseTransition(bookingId, itemId, start, end, phase, boundary);
+        if (scheduled.add(transition.key())) {
+            queue.put(transition);
+        }
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PhaseTransition transition = queue.take();
+                scheduled.remove(transition.key());
+                apply(transition);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Ошибка перевода фазы бронирования: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void apply(PhaseTransition transition) {
+        BookingPhase target = BookingPhase.of(transition.start, transition.end, LocalDateTime.now());
+        if (target == transition.from) {
+            // граница еще не наступила по часам базы - переносим
+            schedule(transition.bookingId, transition.itemId, transition.start, transition.end, transition.from);
+            return;
+        }
+
+        // рабочий поток общий для всех шардов, бронирование лежит на шарде, определяемом его id
+        Boolean changed = shardRouter.onShard(shardRouter.shardOf(transition.bookingId),
+                () -> transactionTemplate.execute(status -> updatePhase(transition, target)));
+
+        if (Boolean.TRUE.equals(changed)) {
+            log.debug("Бронирование ID {} переведено из {} в {}", transition.bookingId, transition.from, target);
+            if (target == BookingPhase.ACTIVE) {
+                schedule(transition.bookingId, transition.itemId, transition.start, transition.end, target);
+            }
+        }
+    }
+
+    private boolean updatePhase(PhaseTransition transition, BookingPhase target) {
+        if (bookingRepository.updatePhase(transition.bookingId, transition.from, target) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(BookingPhaseChangedEvent.builder()
+                .bookingId(transition.bookingId)
+                .itemId(transition.itemId)
+                .from(transition.from)
+                .to(target)
+                .build());
+        return true;
+    }
+
+    private static final class PhaseTransition implements Delayed {
+        private final Long bookingId;
+        private final Long itemId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final BookingPhase from;
+        private final long fireAtNanos;
+
+        private PhaseTransition(Long bookingId, Long itemId, LocalDateTime start, LocalDateTime end,
+                                BookingPhase from, LocalDateTime boundary) {
+            this.bookingId = bookingId;
+            this.itemId = itemId;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.fireAtNanos = System.nanoTime() + Duration.between(LocalDateTime.now(), boundary).toNanos();
+        }
+
+        private String key() {
+            return bookingId + ":" + from;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof PhaseTransition transition) {
+                return Long.compare(fireAtNanos, transition.fireAtNanos);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ru.practicum.shareit.booking.service;
 
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.common.EntityTag;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingService {
 
@@ -16,4 +18,11 @@ public interface BookingService {
     List<BookingResponseDto> getUserBookings(Long userId, String state, Integer from, Integer size);
 
     List<BookingResponseDto> getOwnerBookings(Long ownerId, String state, Integer from, Integer size);
+
+    // пустой результат - ресурса нет или он недоступен, ответ соберет и проверит основной метод
+    Optional<EntityTag> getBookingTag(Long bookingId, Long userId);
+
+    Optional<EntityTag> getUserBookingsTag(Long userId, String state, Integer from, Integer size);
+
+    Optional<EntityTag> getOwnerBookingsTag(Long ownerId, String state, Integer from, Integer size);
 }
\ No newline at end of file
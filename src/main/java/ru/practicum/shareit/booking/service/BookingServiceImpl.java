@@ -2,26 +2,47 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.archive.ArchivedBooking;
+import ru.practicum.shareit.booking.archive.BookingArchive;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.booking.event.BookingEventType;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.common.EntityTag;
+import ru.practicum.shareit.common.ResourceVersion;
 import ru.practicum.shareit.exception.AccessDeniedException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.outbox.model.AggregateType;
+import ru.practicum.shareit.outbox.service.OutboxService;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserBatchLoader;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -32,8 +53,20 @@ public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxService outboxService;
+    private final ShardRouter shardRouter;
+    private final BookingArchive bookingArchive;
+    private final UserBatchLoader userBatchLoader;
+
+    // необязательное ограничение длительности: с ним "текущие" бронирования свежи по start_date
+    // и ищутся только в свежих секциях; без него (по умолчанию) - по фазе без границы start_date
+    @Value("${shareit.bookings.max-duration:#{null}}")
+    private Duration maxDuration;
 
     private static final Sort SORT_BY_START_DESC = Sort.by(Sort.Direction.DESC, "start");
+    private static final Comparator<BookingResponseDto> BY_START_DESC =
+            Comparator.comparing(BookingResponseDto::getStart).reversed();
 
     @Override
     @Transactional
@@ -42,11 +75,7 @@ public class BookingServiceImpl implements BookingService {
 
         User booker = findUserById(bookerId);
 
-        Item item = findItemById(bookingDto.getItemId());
-
-        if (!item.getAvailable()) {
-            throw new ValidationException("Вещь с ID " + item.getId() + " недоступна для бронирования");
-        }
+        Item item = findAvailableItemById(bookingDto.getItemId());
 
         if (item.getOwner().getId().equals(bookerId)) {
             throw new NoSuchElementException("Владелец не может забронировать свою вещь");
@@ -57,13 +86,22 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationException("Дата окончания должна быть больше даты начала");
         }
 
+        if (maxDuration != null
+                && Duration.between(bookingDto.getStart(), bookingDto.getEnd()).compareTo(maxDuration) > 0) {
+            throw new ValidationException("Бронирование не может быть длиннее " + maxDuration.toDays() + " дней");
+        }
+
         Booking booking = BookingMapper.toBooking(bookingDto, item, booker);
         booking.setStatus(BookingStatus.WAITING);
 
         Booking savedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(BookingEvent.of(BookingEventType.CREATED, savedBooking));
+
+        BookingResponseDto result = BookingMapper.toBookingResponseDto(savedBooking);
+        outboxService.record(AggregateType.BOOKING, savedBooking.getId(), BookingEventType.CREATED.name(), result);
 
         log.info("Бронирование создано с ID: {}", savedBooking.getId());
-        return BookingMapper.toBookingResponseDto(savedBooking);
+        return result;
     }
 
     @Override
@@ -87,9 +125,14 @@ public class BookingServiceImpl implements BookingService {
         booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
 
         Booking updatedBooking = bookingRepository.save(booking);
+        BookingEventType eventType = approved ? BookingEventType.APPROVED : BookingEventType.REJECTED;
+        eventPublisher.publishEvent(BookingEvent.of(eventType, updatedBooking));
+
+        BookingResponseDto result = BookingMapper.toBookingResponseDto(updatedBooking);
+        outboxService.record(AggregateType.BOOKING, bookingId, eventType.name(), result);
 
         log.info("Бронирование ID: {} обновлено, статус: {}", bookingId, booking.getStatus());
-        return BookingMapper.toBookingResponseDto(updatedBooking);
+        return result;
     }
 
     @Override
@@ -118,49 +161,46 @@ public class BookingServiceImpl implements BookingService {
             throw new NoSuchElementException("Пользователь с ID " + userId + " не найден");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Booking> bookings;
-
+        BookingState bookingState;
         try {
-            BookingState bookingState = BookingState.valueOf(state.toUpperCase());
-
-            switch (bookingState) {
-                case ALL:
-                    bookings = bookingRepository.findAllByBookerId(userId, SORT_BY_START_DESC);
-                    break;
-                case CURRENT:
-                    bookings = bookingRepository.findCurrentBookingsByBooker(userId, now, SORT_BY_START_DESC);
-                    break;
-                case PAST:
-                    bookings = bookingRepository.findPastBookingsByBooker(userId, now, SORT_BY_START_DESC);
-                    break;
-                case FUTURE:
-                    bookings = bookingRepository.findFutureBookingsByBooker(userId, now, SORT_BY_START_DESC);
-                    break;
-                case WAITING:
-                    bookings = bookingRepository.findAllByBookerIdAndStatus(userId, BookingStatus.WAITING, SORT_BY_START_DESC);
-                    break;
-                case REJECTED:
-                    bookings = bookingRepository.findAllByBookerIdAndStatus(userId, BookingStatus.REJECTED, SORT_BY_START_DESC);
-                    break;
-                default:
-                    throw new ValidationException("Статус не определен: " + state);
-            }
+            bookingState = BookingState.valueOf(state.toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new ValidationException("Статус не определен: " + state);
         }
 
-        List<Booking> paginatedBookings = bookings.stream()
+        // бронирования арендатора лежат на шардах владельцев вещей: опрашиваем все и сливаем по дате начала
+        List<BookingResponseDto> bookings = shardRouter.scatterGather(
+                shard -> findBookerBookings(userId, bookingState).stream()
+                        .map(BookingMapper::toBookingResponseDto)
+                        .toList(),
+                BY_START_DESC);
+        bookings = withArchived(bookings, bookingState, () -> bookingArchive.findByBookerId(userId));
+
+        return bookings.stream()
                 .skip(from)
                 .limit(size)
-                .toList();
-
-        return paginatedBookings.stream()
-                .map(BookingMapper::toBookingResponseDto)
                 .collect(Collectors.toList());
     }
 
+    private List<Booking> findBookerBookings(Long userId, BookingState bookingState) {
+        switch (bookingState) {
+            case ALL:
+                return bookingRepository.findAllByBookerId(userId, SORT_BY_START_DESC);
+            case CURRENT:
+                return findBookerOpenPhase(userId, BookingPhase.ACTIVE);
+            case PAST:
+                return bookingRepository.findAllByBookerIdAndPhase(userId, BookingPhase.FINISHED, SORT_BY_START_DESC);
+            case FUTURE:
+                return findBookerOpenPhase(userId, BookingPhase.UPCOMING);
+            case WAITING:
+                return bookingRepository.findAllByBookerIdAndStatus(userId, BookingStatus.WAITING, SORT_BY_START_DESC);
+            case REJECTED:
+                return bookingRepository.findAllByBookerIdAndStatus(userId, BookingStatus.REJECTED, SORT_BY_START_DESC);
+            default:
+                throw new ValidationException("Статус не определен: " + bookingState);
+        }
+    }
+
     @Override
     public List<BookingResponseDto> getOwnerBookings(Long ownerId, String state, Integer from, Integer size) {
         log.info("Получение бронирований для вещей владельца ID: {} с состоянием: {}", ownerId, state);
@@ -170,25 +210,24 @@ public class BookingServiceImpl implements BookingService {
             throw new NoSuchElementException("Пользователь с ID " + ownerId + " не найден");
         }
 
-        LocalDateTime now = LocalDateTime.now();
-
         List<Booking> bookings;
+        BookingState bookingState;
 
         try {
-            BookingState bookingState = BookingState.valueOf(state.toUpperCase());
+            bookingState = BookingState.valueOf(state.toUpperCase());
 
             switch (bookingState) {
                 case ALL:
                     bookings = bookingRepository.findAllByItemOwnerId(ownerId, SORT_BY_START_DESC);
                     break;
                 case CURRENT:
-                    bookings = bookingRepository.findCurrentBookingsByBooker(ownerId, now, SORT_BY_START_DESC);
+                    bookings = findOwnerOpenPhase(ownerId, BookingPhase.ACTIVE);
                     break;
                 case PAST:
-                    bookings = bookingRepository.findPastBookingsByBooker(ownerId, now, SORT_BY_START_DESC);
+                    bookings = bookingRepository.findAllByItemOwnerIdAndPhase(ownerId, BookingPhase.FINISHED, SORT_BY_START_DESC);
                     break;
                 case FUTURE:
-                    bookings = bookingRepository.findFutureBookingsByBooker(ownerId, now, SORT_BY_START_DESC);
+                    bookings = findOwnerOpenPhase(ownerId, BookingPhase.UPCOMING);
                     break;
                 case WAITING:
                     bookings = bookingRepository.findAllByItemOwnerIdAndStatus(ownerId, BookingStatus.WAITING, SORT_BY_START_DESC);
@@ -203,14 +242,107 @@ public class BookingServiceImpl implements BookingService {
             throw new ValidationException("Статус не определен: " + state);
         }
 
-        List<Booking> paginatedBookings = bookings.stream()
+        // запрос владельца не подгружает арендаторов: их имена берутся одним запросом, а не по одному на арендатора
+        Map<Long, UserDto> bookers = userBatchLoader.loadAll(
+                bookings.stream().map(booking -> booking.getBooker().getId()).toList());
+        List<BookingResponseDto> result = withArchived(
+                bookings.stream().map(booking -> BookingMapper.toBookingResponseDto(booking, bookers)).toList(),
+                bookingState,
+                () -> bookingArchive.findByItemOwnerId(ownerId));
+
+        return result.stream()
                 .skip(from)
                 .limit(size)
-                .toList();
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<EntityTag> getBookingTag(Long bookingId, Long userId) {
+        ResourceVersion version = bookingRepository.findVersionByIdVisibleTo(bookingId, userId);
+        return version.isEmpty()
+                ? Optional.empty()
+                : Optional.of(EntityTag.strong("booking", bookingId, version));
+    }
+
+    @Override
+    public Optional<EntityTag> getUserBookingsTag(Long userId, String state, Integer from, Integer size) {
+        if (!isKnownState(state) || !userRepository.existsById(userId)) {
+            return Optional.empty();
+        }
+
+        // список собирается со всех шардов и из архива, поэтому и отпечаток тоже
+        ResourceVersion version = shardRouter.scatterGather(
+                        shard -> List.of(bookingRepository.findVersionByBookerId(userId)),
+                        Comparator.comparingLong(ResourceVersion::getMaxId)).stream()
+                .reduce(ResourceVersion::plus)
+                .orElseThrow();
+        return Optional.of(EntityTag.weak("bookings", userId, state.toUpperCase(), from, size, version,
+                bookingArchive.getGeneration()));
+    }
+
+    @Override
+    public Optional<EntityTag> getOwnerBookingsTag(Long ownerId, String state, Integer from, Integer size) {
+        if (!isKnownState(state) || !userRepository.existsById(ownerId)) {
+            return Optional.empty();
+        }
+
+        // вещи владельца лежат на его шарде, но давно завершенные бронирования добавляются из архива
+        ResourceVersion version = bookingRepository.findVersionByItemOwnerId(ownerId);
+        return Optional.of(EntityTag.weak("owner-bookings", ownerId, state.toUpperCase(), from, size, version,
+                bookingArchive.getGeneration()));
+    }
+
+    private static boolean isKnownState(String state) {
+        try {
+            BookingState.valueOf(state.toUpperCase());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // давно завершенные бронирования лежат в архиве; строка, которая успела попасть и туда, и в базу, берется из базы
+    private static List<BookingResponseDto> withArchived(List<BookingResponseDto> hot, BookingState bookingState,
+                                                         Supplier<List<ArchivedBooking>> archived) {
+        if (bookingState == BookingState.CURRENT || bookingState == BookingState.FUTURE) {
+            return hot;
+        }
 
-        return paginatedBookings.stream()
+        Set<Long> hotIds = hot.stream().map(BookingResponseDto::getId).collect(Collectors.toSet());
+        List<BookingResponseDto> cold = archived.get().stream()
+                .filter(booking -> !hotIds.contains(booking.getId()))
+                .filter(booking -> bookingState != BookingState.WAITING || booking.getStatus() == BookingStatus.WAITING)
+                .filter(booking -> bookingState != BookingState.REJECTED || booking.getStatus() == BookingStatus.REJECTED)
                 .map(BookingMapper::toBookingResponseDto)
-                .collect(Collectors.toList());
+                .toList();
+        if (cold.isEmpty()) {
+            return hot;
+        }
+
+        return Stream.concat(hot.stream(), cold.stream())
+                .sorted(BY_START_DESC)
+                .toList();
+    }
+
+    private List<Booking> findBookerOpenPhase(Long bookerId, BookingPhase phase) {
+        if (maxDuration == null) {
+            return bookingRepository.findAllByBookerIdAndPhase(bookerId, phase, SORT_BY_START_DESC);
+        }
+        return bookingRepository.findAllByBookerIdAndPhaseAndStartGreaterThanEqual(
+                bookerId, phase, prunedSince(), SORT_BY_START_DESC);
+    }
+
+    private List<Booking> findOwnerOpenPhase(Long ownerId, BookingPhase phase) {
+        if (maxDuration == null) {
+            return bookingRepository.findAllByItemOwnerIdAndPhase(ownerId, phase, SORT_BY_START_DESC);
+        }
+        return bookingRepository.findAllByItemOwnerIdAndPhaseStartingFrom(
+                ownerId, phase, prunedSince(), SORT_BY_START_DESC);
+    }
+
+    // нижняя граница start_date для бронирований, которые еще не завершились
+    private LocalDateTime prunedSince() {
+        return LocalDateTime.now().minus(maxDuration);
     }
 
     private enum BookingState {
@@ -221,11 +353,15 @@ public class BookingServiceImpl implements BookingService {
         return userRepository.findById(userId).orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
     }
 
-    private Item findItemById(Long itemId) {
-        return itemRepository.findById(itemId).orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
+    // доступность - условие запроса по частичному индексу; отсутствующую вещь от снятой с аренды
+    // отличает отдельная проверка только на пути ошибки
+    private Item findAvailableItemById(Long itemId) {
+        return itemRepository.findByIdAndAvailableTrue(itemId).orElseThrow(() -> itemRepository.existsById(itemId)
+                ? new ValidationException("Вещь с ID " + itemId + " недоступна для бронирования")
+                : new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
     }
 
     private Booking findBookingById(Long bookingId) {
-        return bookingRepository.findById(bookingId).orElseThrow(() -> new NoSuchElementException("Бронирование с ID " + bookingId + " не найдено"));
+        return bookingRepository.findVisibleById(bookingId).orElseThrow(() -> new NoSuchElementException("Бронирование с ID " + bookingId + " не найдено"));
     }
 }
\ No newline at end of file
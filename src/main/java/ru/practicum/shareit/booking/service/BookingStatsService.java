@@ -0,0 +1,10 @@
+package ru.practicum.shareit.booking.service;
+
+import ru.practicum.shareit.booking.dto.OwnerBookingStatsDto;
+
+public interface BookingStatsService {
+
+    OwnerBookingStatsDto getOwnerStats(Long ownerId);
+
+    void reconcile();
+}
@@ -0,0 +1,193 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.ItemBookingCounts;
+import ru.practicum.shareit.booking.dto.ItemBookingStatsDto;
+import ru.practicum.shareit.booking.dto.OwnerBookingStatsDto;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.booking.event.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.ItemBookingStats;
+import ru.practicum.shareit.booking.repository.ItemBookingStatsRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class BookingStatsServiceImpl implements BookingStatsService {
+
+    private final ItemBookingStatsRepository statsRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    @Value("${shareit.stats.reconcile-chunk-size:1000}")
+    private int reconcileChunkSize;
+
+    @Override
+    public OwnerBookingStatsDto getOwnerStats(Long ownerId) {
+        log.info("Получение статистики бронирований владельца ID: {}", ownerId);
+
+        if (!userRepository.existsById(ownerId)) {
+            throw new NoSuchElementException("Пользователь с ID " + ownerId + " не найден");
+        }
+
+        List<ItemBookingStatsDto> items = statsRepository.findOwnerStats(ownerId);
+
+        return OwnerBookingStatsDto.builder()
+                .ownerId(ownerId)
+                .all(items.stream().mapToLong(ItemBookingStatsDto::getAll).sum())
+                .waiting(items.stream().mapToLong(ItemBookingStatsDto::getWaiting).sum())
+                .approved(items.stream().mapToLong(ItemBookingStatsDto::getApproved).sum())
+                .rejected(items.stream().mapToLong(ItemBookingStatsDto::getRejected).sum())
+                .current(items.stream().mapToLong(ItemBookingStatsDto::getCurrent).sum())
+                .past(items.stream().mapToLong(ItemBookingStatsDto::getPast).sum())
+                .future(items.stream().mapToLong(ItemBookingStatsDto::getFuture).sum())
+                .bookedMinutes(items.stream().mapToLong(ItemBookingStatsDto::getBookedMinutes).sum())
+                .items(items)
+                .build();
+    }
+
+    // счетчики меняются в той же транзакции, что и бронирование
+    @EventListener
+    @Transactional
+    public void onBookingEvent(BookingEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+                applyDelta(event.getItemId(), 1, 1, 0, 0,
+                        phaseCount(event.getPhase(), BookingPhase.FINISHED),
+                        phaseCount(event.getPhase(), BookingPhase.ACTIVE),
+                        phaseCount(event.getPhase(), BookingPhase.UPCOMING), 0);
+                break;
+            case APPROVED:
+                applyDelta(event.getItemId(), 0, -1, 1, 0, 0, 0, 0,
+                        Duration.between(event.getStart(), event.getEnd()).toMinutes());
+                break;
+            case REJECTED:
+                applyDelta(event.getItemId(), 0, -1, 0, 1, 0, 0, 0, 0);
+                break;
+        }
+    }
+
+    @EventListener
+    @Transactional
+    public void onBookingPhaseChanged(BookingPhaseChangedEvent event) {
+        applyDelta(event.getItemId(), 0, 0, 0, 0,
+                phaseCount(event.getTo(), BookingPhase.FINISHED) - phaseCount(event.getFrom(), BookingPhase.FINISHED),
+                phaseCount(event.getTo(), BookingPhase.ACTIVE) - phaseCount(event.getFrom(), BookingPhase.ACTIVE),
+                phaseCount(event.getTo(), BookingPhase.UPCOMING) - phaseCount(event.getFrom(), BookingPhase.UPCOMING),
+                0);
+    }
+
+    // страховочный полный пересчет порциями вещей, каждая в своей транзакции на своем шарде
+    // (классовая readOnly-транзакция сюда не распространяется). Строка заменяется, только если ее версия
+    // не менялась с начала подсчета: приращение, зафиксированное во время пересчета, не затирается
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Scheduled(fixedDelayString = "${shareit.stats.reconcile-interval:PT10M}",
+            initialDelayString = "${shareit.stats.reconcile-initial-delay:PT1M}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        shardRouter.forEachShard(shard -> reconcileShard(shard, now));
+    }
+
+    private void reconcileShard(int shard, LocalDateTime now) {
+        long afterItemId = 0;
+        int items = 0;
+        int skipped = 0;
+        while (true) {
+            long after = afterItemId;
+            List<Long> itemIds = transactionTemplate.execute(status -> statsRepository.findBookedItemIdsAfter(after,
+                    PageRequest.of(0, reconcileChunkSize)));
+            if (itemIds == null || itemIds.isEmpty()) {
+                break;
+            }
+            Integer changed = transactionTemplate.execute(status -> reconcileChunk(itemIds, now));
+            items += itemIds.size();
+            skipped += changed == null ? 0 : changed;
+            afterItemId = itemIds.get(itemIds.size() - 1);
+        }
+        Integer stale = transactionTemplate.execute(status -> statsRepository.deleteStale());
+
+        log.info("Шард {}: статистика бронирований пересчитана: {} вещей, пропущено {} измененных во время " +
+                "пересчета, удалено {} устаревших строк", shard, items, skipped, stale);
+    }
+
+    // возвращает число строк, которые изменились во время подсчета и остались как есть
+    private int reconcileChunk(List<Long> itemIds, LocalDateTime now) {
+        Map<Long, Long> versions = statsRepository.findVersions(itemIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        int skipped = 0;
+        for (ItemBookingStats stats : computeStats(itemIds, now)) {
+            Long version = versions.get(stats.getItemId());
+            int written = version == null
+                    ? statsRepository.insertIfAbsent(stats)
+                    : statsRepository.replaceIfUnchanged(stats, version);
+            if (written == 0) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    private static long phaseCount(BookingPhase actual, BookingPhase expected) {
+        return actual == expected ? 1 : 0;
+    }
+
+    private void applyDelta(Long itemId, long total, long waiting, long approved, long rejected,
+                            long past, long current, long future, long minutes) {
+        if (statsRepository.applyDelta(itemId, total, waiting, approved, rejected, past, current, future, minutes) > 0) {
+            return;
+        }
+        // строки для вещи еще нет: вставка без конфликта с параллельным первым бронированием,
+        // затем то же приращение; бронирования, появившиеся до строки, учтет пересчет
+        statsRepository.insertEmptyIfAbsent(itemId);
+        statsRepository.applyDelta(itemId, total, waiting, approved, rejected, past, current, future, minutes);
+    }
+
+    private List<ItemBookingStats> computeStats(List<Long> itemIds, LocalDateTime now) {
+        List<ItemBookingCounts> counts = statsRepository.computeStats(itemIds);
+        Map<Long, Long> minutesByItemId = statsRepository.computeBookedMinutes(itemIds).stream()
+                .collect(Collectors.toMap(
+                        row -> (Long) row[0],
+                        row -> row[1] == null ? 0L : ((Number) row[1]).longValue()));
+
+        return counts.stream()
+                .map(count -> toStats(count, minutesByItemId.getOrDefault(count.getItemId(), 0L), now))
+                .collect(Collectors.toList());
+    }
+
+    private ItemBookingStats toStats(ItemBookingCounts counts, Long bookedMinutes, LocalDateTime now) {
+        return ItemBookingStats.builder()
+                .itemId(counts.getItemId())
+                .ownerId(counts.getOwnerId())
+                .totalCount(counts.getTotal())
+                .waitingCount(counts.getWaiting())
+                .approvedCount(counts.getApproved())
+                .rejectedCount(counts.getRejected())
+                .pastCount(counts.getPast())
+                .currentCount(counts.getCurrent())
+                .futureCount(counts.getFuture())
+                .bookedMinutes(bookedMinutes)
+                .reconciled(now)
+                .build();
+    }
+}
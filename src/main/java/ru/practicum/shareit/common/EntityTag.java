@@ -0,0 +1,45 @@
+package ru.practicum.shareit.common;
+
+import lombok.Value;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ETag и Last-Modified представления, посчитанные по версиям строк без сборки DTO.
+ * Сильный тег - для одного ресурса, слабый - для страниц списков.
+ */
+@Value
+public class EntityTag {
+
+    String value;
+    long lastModified;
+
+    public static EntityTag strong(Object... parts) {
+        return new EntityTag("\"" + join(parts) + "\"", lastModified(parts));
+    }
+
+    public static EntityTag weak(Object... parts) {
+        return new EntityTag("W/\"" + join(parts) + "\"", lastModified(parts));
+    }
+
+    // выставляет ETag/Last-Modified и возвращает true, если клиенту можно ответить 304
+    public boolean checkNotModified(WebRequest request) {
+        return request.checkNotModified(value, lastModified);
+    }
+
+    private static String join(Object... parts) {
+        return Stream.of(parts)
+                .map(part -> part instanceof ResourceVersion version ? version.tag() : String.valueOf(part))
+                .collect(Collectors.joining("-"));
+    }
+
+    private static long lastModified(Object... parts) {
+        return Stream.of(parts)
+                .filter(ResourceVersion.class::isInstance)
+                .mapToLong(part -> ((ResourceVersion) part).lastModifiedMillis())
+                .max()
+                .orElse(-1);
+    }
+}
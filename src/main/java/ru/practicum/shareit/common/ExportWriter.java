@@ -0,0 +1,128 @@
+package ru.practicum.shareit.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Построчная запись потоковых выгрузок в NDJSON или CSV.
+ * Строки пишутся в буфер, который сбрасывается в ответ каждые chunk-size строк; тогда же вызывается
+ * afterChunk, где сервис очищает контекст персистентности, поэтому память не растет вместе с выгрузкой.
+ */
+public class ExportWriter<T> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectWriter lineWriter;
+    private final byte[] csvHeader;
+    private final Function<T, List<String>> csvColumns;
+    private final int chunkSize;
+    private final Runnable afterChunk;
+
+    public ExportWriter(ObjectMapper objectMapper,
+                        Class<T> type,
+                        List<String> csvHeader,
+                        Function<T, List<String>> csvColumns,
+                        int chunkSize,
+                        Runnable afterChunk) {
+        // генератор не должен закрывать поток ответа после каждой строки
+        this.lineWriter = objectMapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.csvHeader = (String.join(",", csvHeader) + "\n").getBytes(StandardCharsets.UTF_8);
+        this.csvColumns = csvColumns;
+        this.chunkSize = chunkSize;
+        this.afterChunk = afterChunk;
+    }
+
+    // начинает выгрузку в поток ответа: для CSV сразу пишется заголовок; null в колонках CSV - пустое поле
+    public Output<T> open(ExportFormat format, OutputStream out) {
+        Output<T> output = new Output<>(this, format, new BufferedOutputStream(out, BUFFER_SIZE));
+        if (format == ExportFormat.CSV) {
+            output.write(csvHeader);
+        }
+        return output;
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    public static final class Output<T> {
+
+        private final ExportWriter<T> writer;
+        private final ExportFormat format;
+        private final OutputStream buffer;
+        private long count;
+
+        private Output(ExportWriter<T> writer, ExportFormat format, OutputStream buffer) {
+            this.writer = writer;
+            this.format = format;
+            this.buffer = buffer;
+        }
+
+        // вызывается внутри транзакции, открывшей курсор; поток строк закрывается здесь
+        public <S> long writeAll(Stream<S> rows, Function<S, T> mapper) {
+            long written = 0;
+            try (rows) {
+                Iterator<S> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    writeLine(mapper.apply(iterator.next()));
+                    written++;
+                    if (++count % writer.chunkSize == 0) {
+                        buffer.flush();
+                        writer.afterChunk.run();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        }
+
+        // сбрасывает буфер и возвращает число выгруженных строк
+        public long finish() {
+            try {
+                buffer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        }
+
+        private void writeLine(T row) throws IOException {
+            if (format == ExportFormat.NDJSON) {
+                writer.lineWriter.writeValue(buffer, row);
+                buffer.write('\n');
+                return;
+            }
+            String line = writer.csvColumns.apply(row).stream()
+                    .map(ExportWriter::csv)
+                    .collect(Collectors.joining(",", "", "\n"));
+            buffer.write(line.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void write(byte[] bytes) {
+            try {
+                buffer.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.shareit.common;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Отпечаток набора строк для условных GET-запросов.
+ * Число строк, максимальный id и сумма версий вместе меняются при любом добавлении, удалении или изменении:
+ * удаление уменьшает число строк, добавление увеличивает максимальный id, изменение - сумму версий.
+ */
+@Value
+public class ResourceVersion {
+
+    long count;
+    long maxId;
+    long versionSum;
+    LocalDateTime lastModified;
+
+    public ResourceVersion(Long count, Long maxId, Long versionSum, LocalDateTime lastModified) {
+        this.count = count == null ? 0 : count;
+        this.maxId = maxId == null ? 0 : maxId;
+        this.versionSum = versionSum == null ? 0 : versionSum;
+        this.lastModified = lastModified;
+    }
+
+    // для бронирований, чье представление включает вещь и арендатора
+    public ResourceVersion(Long count, Long maxId, Long versionSum,
+                           LocalDateTime bookingUpdated, LocalDateTime itemUpdated, LocalDateTime bookerUpdated) {
+        this(count, maxId, versionSum, latest(latest(bookingUpdated, itemUpdated), bookerUpdated));
+    }
+
+    // отпечаток строк, собранных с нескольких шардов
+    public ResourceVersion plus(ResourceVersion other) {
+        return new ResourceVersion(count + other.count, Math.max(maxId, other.maxId), versionSum + other.versionSum,
+                latest(lastModified, other.lastModified));
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public String tag() {
+        return count + "." + maxId + "." + versionSum;
+    }
+
+    private static LocalDateTime latest(LocalDateTime first, LocalDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.isAfter(second) ? first : second;
+    }
+}
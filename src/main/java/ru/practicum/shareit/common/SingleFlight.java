@@ -0,0 +1,86 @@
+package ru.practicum.shareit.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых вычислений: первый вызов с ключом считает значение,
+ * вызовы с тем же ключом, пришедшие до его завершения, ждут и получают тот же результат или то же исключение.
+ * Готовые значения не хранятся - следующий вызов после завершения считает заново.
+ * Ожидание ограничено waitTimeout: если первый вызов завис, ожидающий считает значение сам.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration waitTimeout;
+    private final Counter leaderCounter;
+    private final Counter coalescedCounter;
+    private final Counter timeoutCounter;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry, Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+        this.leaderCounter = callCounter(meterRegistry, name, "leader");
+        this.coalescedCounter = callCounter(meterRegistry, name, "coalesced");
+        this.timeoutCounter = callCounter(meterRegistry, name, "timeout");
+    }
+
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalescedCounter.increment();
+            return await(running, computation);
+        }
+
+        leaderCounter.increment();
+        try {
+            V value = computation.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private V await(CompletableFuture<V> running, Supplier<V> computation) {
+        try {
+            return running.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // первый вызов завис: ожидающий не держит поток дольше таймаута и считает сам
+            timeoutCounter.increment();
+            return computation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание общего результата прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String name, String result) {
+        return Counter.builder("shareit.singleflight.calls")
+                .description("Вызовы, посчитанные самостоятельно (leader), получившие чужой результат (coalesced) " +
+                        "и не дождавшиеся его (timeout)")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
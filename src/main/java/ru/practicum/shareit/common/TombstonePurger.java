@@ -0,0 +1,206 @@
+package ru.practicum.shareit.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Удаление пользователей и вещей с большим числом зависимых строк.
+ * Сервис помечает строку deleted_at и сразу скрывает ее из запросов (бронирования и комментарии помеченных
+ * вещей, арендаторов и авторов отсекаются в запросах), а бронирования, комментарии, запросы и сами помеченные
+ * строки удаляются здесь порциями по chunk-size, каждая в своей транзакции,
+ * поэтому каскад базы не блокирует тысячи строк одной транзакцией.
+ * Вместе с порцией бронирований из item_booking_stats вычитаются их счетчики, вместе с порцией комментариев
+ * уменьшается items.comment_count и растет версия вещи - карточка вещи и ее ETag меняются вместе.
+ * Если зависимых строк не больше tombstone-threshold, строка удаляется сразу каскадом базы.
+ */
+@Service
+@Slf4j
+public class TombstonePurger {
+
+    private static final String DEAD_ITEM = "item_id IN (SELECT id FROM items WHERE deleted_at IS NOT NULL)";
+    private static final String DEAD_BOOKER = "booker_id IN (SELECT id FROM users WHERE deleted_at IS NOT NULL)";
+    private static final String DEAD_AUTHOR = "author_id IN (SELECT id FROM users WHERE deleted_at IS NOT NULL)";
+
+    // после зависимых строк: вещи, запросы, затем пользователи без оставшихся вещей
+    private static final List<String> STEPS = List.of(
+            "DELETE FROM items WHERE id IN (SELECT i.id FROM items i WHERE i.deleted_at IS NOT NULL LIMIT ?)",
+            "DELETE FROM requests WHERE id IN (SELECT r.id FROM requests r " +
+                    "JOIN users u ON u.id = r.requestor_id WHERE u.deleted_at IS NOT NULL LIMIT ?)",
+            "DELETE FROM users WHERE id IN (SELECT u.id FROM users u WHERE u.deleted_at IS NOT NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM items i WHERE i.owner_id = u.id) LIMIT ?)");
+
+    private static final String SUBTRACT_STATS = "UPDATE item_booking_stats SET " +
+            "total_count = total_count - ?, waiting_count = waiting_count - ?, approved_count = approved_count - ?, " +
+            "rejected_count = rejected_count - ?, past_count = past_count - ?, current_count = current_count - ?, " +
+            "future_count = future_count - ?, booked_minutes = booked_minutes - ?, version = version + 1 " +
+            "WHERE item_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final long threshold;
+    private final int chunkSize;
+
+    public TombstonePurger(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           ShardRouter shardRouter,
+                           @Value("${shareit.deletion.purge.enabled:true}") boolean enabled,
+                           @Value("${shareit.deletion.tombstone-threshold:1000}") long threshold,
+                           @Value("${shareit.deletion.purge.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isSmall(long dependents) {
+        return dependents <= threshold;
+    }
+
+    // вызываются в транзакции удаления после пометки; DELETE без JPA, иначе помеченная строка не видна
+    public void deleteItemNow(Long itemId) {
+        jdbcTemplate.update("DELETE FROM items WHERE id = ?", itemId);
+    }
+
+    // бронирования и комментарии пользователя на чужих вещах удаляются до каскада, чтобы поправить счетчики вещей
+    public void deleteUserNow(Long userId) {
+        while (deleteBookings("booker_id = ?", userId) == chunkSize) {
+            log.debug("Удалена порция бронирований пользователя {}", userId);
+        }
+        while (deleteComments("author_id = ?", userId) == chunkSize) {
+            log.debug("Удалена порция комментариев пользователя {}", userId);
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.deletion.purge.interval:PT30S}")
+    public void purgeScheduled() {
+        if (enabled) {
+            purge();
+        }
+    }
+
+    public long purge() {
+        long total = 0;
+        for (int shard : shardRouter.allShards()) {
+            total += shardRouter.onShard(shard, this::purgeShard);
+        }
+        if (total > 0) {
+            log.info("Очистка удаленных пользователей и вещей: удалено {} строк", total);
+        }
+        return total;
+    }
+
+    private long purgeShard() {
+        long total = inChunks(() -> deleteBookings(DEAD_ITEM))
+                + inChunks(() -> deleteBookings(DEAD_BOOKER))
+                + inChunks(() -> deleteComments(DEAD_ITEM))
+                + inChunks(() -> deleteComments(DEAD_AUTHOR));
+        for (String step : STEPS) {
+            total += inChunks(() -> jdbcTemplate.update(step, chunkSize));
+        }
+        return total;
+    }
+
+    private long inChunks(IntSupplier chunk) {
+        long total = 0;
+        int deleted;
+        do {
+            Integer result = transactionTemplate.execute(status -> chunk.getAsInt());
+            deleted = result == null ? 0 : result;
+            total += deleted;
+        } while (deleted == chunkSize);
+        return total;
+    }
+
+    // порция бронирований по условию: счетчики вещей уменьшаются на удаляемые строки
+    private int deleteBookings(String condition, Object... args) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, item_id, status, phase, start_date, end_date FROM bookings WHERE " + condition + " LIMIT ?",
+                append(args, chunkSize));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            long[] delta = deltas.computeIfAbsent(((Number) row.get("item_id")).longValue(), itemId -> new long[8]);
+            delta[0]++;
+            switch (BookingStatus.valueOf((String) row.get("status"))) {
+                case WAITING -> delta[1]++;
+                case APPROVED -> {
+                    delta[2]++;
+                    delta[7] += Duration.between(dateTime(row.get("start_date")), dateTime(row.get("end_date")))
+                            .toMinutes();
+                }
+                case REJECTED -> delta[3]++;
+                default -> {
+                }
+            }
+            switch (BookingPhase.valueOf((String) row.get("phase"))) {
+                case FINISHED -> delta[4]++;
+                case ACTIVE -> delta[5]++;
+                case UPCOMING -> delta[6]++;
+            }
+        }
+        jdbcTemplate.batchUpdate(SUBTRACT_STATS, deltas.entrySet().stream()
+                .map(entry -> append(LongStream.of(entry.getValue()).boxed().toArray(), entry.getKey()))
+                .toList());
+        jdbcTemplate.batchUpdate("DELETE FROM bookings WHERE id = ?", ids(rows));
+        return rows.size();
+    }
+
+    // порция комментариев по условию: счетчик и версия живых вещей меняются вместе со строками
+    private int deleteComments(String condition, Object... args) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, item_id FROM comments WHERE " + condition + " LIMIT ?", append(args, chunkSize));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Long> perItem = rows.stream().collect(Collectors.groupingBy(
+                row -> ((Number) row.get("item_id")).longValue(), Collectors.counting()));
+        jdbcTemplate.batchUpdate("UPDATE items SET comment_count = comment_count - ?, version = version + 1, " +
+                        "updated = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL",
+                perItem.entrySet().stream().map(entry -> new Object[]{entry.getValue(), entry.getKey()}).toList());
+        jdbcTemplate.batchUpdate("DELETE FROM comments WHERE id = ?", ids(rows));
+        return rows.size();
+    }
+
+    private static LocalDateTime dateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+
+    private static List<Object[]> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> new Object[]{row.get("id")}).toList();
+    }
+
+    private static Object[] append(Object[] args, Object last) {
+        Object[] result = Arrays.copyOf(args, args.length + 1);
+        result[args.length] = last;
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.shareit.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class JacksonConfig {
+
+    // Spring Boot регистрирует бины Module в общем ObjectMapper:
+    // Blackbird заменяет рефлексию при чтении полей DTO на сгенерированные лямбды
+    @Bean
+    @ConditionalOnProperty(name = "shareit.serialization.blackbird.enabled", havingValue = "true", matchIfMissing = true)
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    // компактный бинарный формат для клиентов с Accept: application/x-jackson-smile;
+    // билдер от Spring Boot - прототип с теми же модулями и настройками, что у JSON
+    @Bean
+    @ConditionalOnProperty(name = "shareit.serialization.smile.enabled", havingValue = "true", matchIfMissing = true)
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    // Spring MVC сам добавляет Smile-конвертер, если библиотека есть в classpath;
+    // при выключенном формате его нужно убрать из списка, иначе клиент все равно получит Smile
+    @Bean
+    @ConditionalOnProperty(name = "shareit.serialization.smile.enabled", havingValue = "false")
+    public WebMvcConfigurer smileConverterRemover() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.removeIf(MappingJackson2SmileHttpMessageConverter.class::isInstance);
+            }
+        };
+    }
+}
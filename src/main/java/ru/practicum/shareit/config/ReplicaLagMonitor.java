@@ -0,0 +1,63 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Периодически измеряет отставание реплики. Пока отставание больше допустимого
+ * или реплика недоступна, чтения идут в основной пул.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    // до первой проверки состояние реплики неизвестно - читаем из основной базы
+    private volatile boolean replicaUsable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(2);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+
+        Gauge.builder("shareit.datasource.replica.lag.seconds", this, monitor -> monitor.lagSeconds)
+                .description("Отставание реплики по последней проверке")
+                .register(meterRegistry);
+        Gauge.builder("shareit.datasource.replica.usable", this, monitor -> monitor.replicaUsable ? 1 : 0)
+                .description("1 - чтения идут в реплику, 0 - в основную базу")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.datasource.replica.lag-check-interval:PT5S}")
+    public void check() {
+        boolean usable;
+        try {
+            Double lag = replica.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? 0 : lag;
+            usable = lagSeconds <= maxLagSeconds;
+        } catch (Exception e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            log.warn("Реплика недоступна: {}", e.getMessage());
+        }
+
+        if (usable != replicaUsable) {
+            log.info("Чтения переключены на {} (отставание реплики: {} с)", usable ? "реплику" : "основную базу", lagSeconds);
+        }
+        replicaUsable = usable;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Строит и кеширует сериализаторы самых крупных ответов до первого запроса,
+ * чтобы первые клиенты не платили за интроспекцию классов и генерацию аксессоров.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SerializerWarmUp {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MappingJackson2SmileHttpMessageConverter> smileConverter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<ItemDto> items = List.of(sampleItem());
+        List<BookingResponseDto> bookings = List.of(sampleBooking());
+
+        try {
+            objectMapper.writeValueAsBytes(items);
+            objectMapper.writeValueAsBytes(bookings);
+
+            MappingJackson2SmileHttpMessageConverter smile = smileConverter.getIfAvailable();
+            if (smile != null) {
+                smile.getObjectMapper().writeValueAsBytes(items);
+                smile.getObjectMapper().writeValueAsBytes(bookings);
+            }
+            log.info("Сериализаторы ItemDto и BookingResponseDto подготовлены");
+        } catch (JsonProcessingException e) {
+            log.warn("Не удалось подготовить сериализаторы: {}", e.getMessage());
+        }
+    }
+
+    static ItemDto sampleItem() {
+        LocalDateTime now = LocalDateTime.now();
+        return ItemDto.builder()
+                .id(1L)
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .ownerId(1L)
+                .lastBooking(sampleBooking())
+                .nextBooking(sampleBooking())
+                .comments(List.of(CommentDto.builder().id(1L).text("Отличная дрель").authorName("Иван").created(now).build()))
+                .commentCount(1L)
+                .build();
+    }
+
+    static BookingResponseDto sampleBooking() {
+        LocalDateTime now = LocalDateTime.now();
+        return BookingResponseDto.builder()
+                .id(1L)
+                .start(now)
+                .end(now.plusDays(1))
+                .status(BookingStatus.APPROVED)
+                .booker(BookingResponseDto.BookerDto.builder().id(1L).name("Иван").build())
+                .item(BookingResponseDto.ItemDto.builder().id(1L).name("Дрель").available(true).ownerId(1L).build())
+                .build();
+    }
+}
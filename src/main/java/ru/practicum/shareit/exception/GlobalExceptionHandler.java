@@ -1,7 +1,11 @@
 package ru.practicum.shareit.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -9,6 +13,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -16,6 +21,8 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private static final String EMAIL_CONSTRAINT = "users_email";
+
     @ExceptionHandler(NoSuchElementException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public Map<String, String> handleNotFound(NoSuchElementException ex) {
@@ -46,6 +53,30 @@ public class GlobalExceptionHandler {
         return error;
     }
 
+    // занятый адрес, который не поймала проверка в сервисе (например, гонка между экземплярами);
+    // остальные нарушения ограничений - ошибки приложения, а не конфликт с данными клиента
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrity(DataIntegrityViolationException ex) {
+        if (!isUniqueEmailViolation(ex)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(handleAllExceptions(ex));
+        }
+        log.error("Нарушение уникальности email: {}", ex.getMostSpecificCause().getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Конфликт данных");
+        error.put("message", "Email уже используется другим пользователем");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        log.error("Конфликт параллельного изменения: {}", ex.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Конфликт параллельного изменения");
+        error.put("message", "Объект был изменен другим запросом, повторите операцию");
+        return error;
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -59,6 +90,18 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    // ограничения uq_users_email (schema.sql) и ux_users_email_lower (db/postgresql/users-email-lower.sql);
+    // имя ограничения берется из Hibernate, а для исключений JDBC - из текста ошибки базы
+    private static boolean isUniqueEmailViolation(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+            }
+        }
+        String message = ex.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public Map<String, String> handleAllExceptions(Exception ex) {
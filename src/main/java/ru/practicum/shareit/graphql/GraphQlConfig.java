@@ -0,0 +1,74 @@
+package ru.practicum.shareit.graphql;
+
+import graphql.GraphqlErrorBuilder;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.DataFetcherExceptionResolver;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import ru.practicum.shareit.exception.AccessDeniedException;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.util.NoSuchElementException;
+
+@Configuration
+@Slf4j
+public class GraphQlConfig {
+
+    public static final String CALLER_ID = "callerId";
+
+    // запросы глубже или "дороже" лимита отклоняются до выполнения: каждый уровень - это запросы к базе
+    @Bean
+    public MaxQueryDepthInstrumentation maxQueryDepthInstrumentation(
+            @Value("${shareit.graphql.max-depth:6}") int maxDepth) {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation(
+            @Value("${shareit.graphql.max-complexity:200}") int maxComplexity) {
+        return new MaxQueryComplexityInstrumentation(maxComplexity);
+    }
+
+    // X-Sharer-User-Id переносится в контекст GraphQL, как в REST
+    @Bean
+    public WebGraphQlInterceptor callerInterceptor() {
+        return (request, chain) -> {
+            String header = request.getHeaders().getFirst("X-Sharer-User-Id");
+            if (header != null) {
+                try {
+                    Long callerId = Long.valueOf(header);
+                    request.configureExecutionInput((input, builder) ->
+                            builder.graphQLContext(context -> context.of(CALLER_ID, callerId)).build());
+                } catch (NumberFormatException e) {
+                    log.warn("GraphQL: некорректный X-Sharer-User-Id: {}", header);
+                }
+            }
+            return chain.next(request);
+        };
+    }
+
+    @Bean
+    public DataFetcherExceptionResolver shareItExceptionResolver() {
+        return DataFetcherExceptionResolver.forSingleError((ex, env) -> {
+            ErrorType type;
+            if (ex instanceof NoSuchElementException) {
+                type = ErrorType.NOT_FOUND;
+            } else if (ex instanceof AccessDeniedException) {
+                type = ErrorType.FORBIDDEN;
+            } else if (ex instanceof ValidationException) {
+                type = ErrorType.BAD_REQUEST;
+            } else {
+                return null;
+            }
+            return GraphqlErrorBuilder.newError(env)
+                    .errorType(type)
+                    .message(ex.getMessage())
+                    .build();
+        });
+    }
+}
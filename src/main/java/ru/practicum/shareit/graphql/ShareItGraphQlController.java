@@ -0,0 +1,225 @@
+package ru.practicum.shareit.graphql;
+
+import graphql.GraphQLContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.ContextValue;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.graphql.model.BookingNode;
+import ru.practicum.shareit.graphql.model.CommentNode;
+import ru.practicum.shareit.graphql.model.ItemNode;
+import ru.practicum.shareit.graphql.model.RequestNode;
+import ru.practicum.shareit.graphql.model.UserNode;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserBatchLoader;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL API только для чтения.
+ * Вложенные поля - @BatchMapping: DataLoader собирает родителей одного уровня и вызывает метод один раз,
+ * поэтому число SQL-запросов зависит от глубины запроса, а не от числа строк.
+ * Шард выбирается здесь для каждого поля: вещи, бронирования и комментарии читаются с шарда по id
+ * или со всех шардов сразу, пользователи и запросы - общие справочники и есть на любом шарде.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class ShareItGraphQlController {
+
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final BookingService bookingService;
+    private final UserBatchLoader userBatchLoader;
+    private final ShardRouter shardRouter;
+
+    @Value("${shareit.items.latest-comments:10}")
+    private int latestCommentsLimit;
+
+    // как у пакетных REST-запросов: длинный IN-список - один тяжелый запрос к базе
+    @Value("${shareit.graphql.max-ids:1000}")
+    private int maxIds;
+
+    @QueryMapping
+    public UserNode user(@Argument Long id) {
+        return userRepository.findById(id).map(UserNode::of).orElse(null);
+    }
+
+    @QueryMapping
+    public List<UserNode> users(@Argument List<Long> ids) {
+        if (ids.size() > maxIds) {
+            throw new ValidationException("Не больше " + maxIds + " id за запрос, передано " + ids.size());
+        }
+        return userBatchLoader.loadAll(ids).values().stream().map(UserNode::of).toList();
+    }
+
+    @QueryMapping
+    public ItemNode item(@Argument Long id) {
+        return shardRouter.readOnShard(shardRouter.shardOf(id),
+                () -> itemRepository.findById(id).map(ItemNode::of).orElse(null));
+    }
+
+    @QueryMapping
+    public List<ItemNode> items(@Argument Long ownerId) {
+        return shardRouter.readOnShard(shardRouter.shardOf(ownerId),
+                () -> itemRepository.findAllByOwnerId(ownerId).stream().map(ItemNode::of).toList());
+    }
+
+    @QueryMapping
+    public BookingNode booking(@Argument Long id,
+                               @ContextValue(name = GraphQlConfig.CALLER_ID, required = false) Long callerId) {
+        if (callerId == null) {
+            throw new NoSuchElementException("Бронирование с ID " + id + " не найдено");
+        }
+        return shardRouter.readOnShard(shardRouter.shardOf(id),
+                () -> BookingNode.of(bookingService.getBookingById(id, callerId)));
+    }
+
+    @QueryMapping
+    public RequestNode request(@Argument Long id) {
+        return itemRequestRepository.findById(id).map(RequestNode::of).orElse(null);
+    }
+
+    @BatchMapping(typeName = "User", field = "items")
+    public Map<UserNode, List<ItemNode>> userItems(List<UserNode> users) {
+        List<Long> ownerIds = ids(users, UserNode::getId);
+        Map<Long, List<ItemNode>> byOwner = fromAllShards(
+                        () -> itemRepository.findAllByOwnerIdIn(ownerIds).stream().map(ItemNode::of).toList()).stream()
+                .collect(Collectors.groupingBy(ItemNode::getOwnerId));
+        return users.stream().collect(Collectors.toMap(Function.identity(),
+                user -> byOwner.getOrDefault(user.getId(), List.of()), (first, second) -> first));
+    }
+
+    @BatchMapping(typeName = "Item", field = "owner")
+    public Map<ItemNode, UserNode> itemOwner(List<ItemNode> items) {
+        return resolveUsers(items, ItemNode::getOwnerId);
+    }
+
+    @BatchMapping(typeName = "Item", field = "comments")
+    public Map<ItemNode, List<CommentNode>> itemComments(List<ItemNode> items) {
+        // комментарии вещи лежат на одном шарде, поэтому слияние по вещи сохраняет их порядок
+        List<Long> itemIds = ids(items, ItemNode::getId);
+        Map<Long, List<CommentNode>> byItem = shardRouter.scatterGather(
+                        shard -> commentRepository.findLatestViewsByItemIds(itemIds, latestCommentsLimit).stream()
+                                .map(comment -> Map.entry(comment.getItemId(), CommentNode.of(comment)))
+                                .toList(),
+                        Map.Entry.<Long, CommentNode>comparingByKey()).stream()
+                .collect(Collectors.groupingBy(Map.Entry::getKey,
+                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+        return items.stream().collect(Collectors.toMap(Function.identity(),
+                item -> byItem.getOrDefault(item.getId(), List.of()), (first, second) -> first));
+    }
+
+    // те же запросы, что у списка вещей владельца в REST: не больше одного бронирования на вещь
+    @BatchMapping(typeName = "Item", field = "lastBooking")
+    public Map<ItemNode, BookingNode> itemLastBooking(List<ItemNode> items, GraphQLContext context) {
+        return ownerBookings(items, context, bookingRepository::findLastFinishedBookingsForItems);
+    }
+
+    @BatchMapping(typeName = "Item", field = "nextBooking")
+    public Map<ItemNode, BookingNode> itemNextBooking(List<ItemNode> items, GraphQLContext context) {
+        return ownerBookings(items, context, bookingRepository::findNextBookingsForItems);
+    }
+
+    @BatchMapping(typeName = "Booking", field = "item")
+    public Map<BookingNode, ItemNode> bookingItem(List<BookingNode> bookings) {
+        List<Long> itemIds = ids(bookings, BookingNode::getItemId);
+        Map<Long, ItemNode> itemsById = fromAllShards(
+                        () -> itemRepository.findAllById(itemIds).stream().map(ItemNode::of).toList()).stream()
+                .collect(Collectors.toMap(ItemNode::getId, Function.identity()));
+        return mapPresent(bookings, booking -> itemsById.get(booking.getItemId()));
+    }
+
+    @BatchMapping(typeName = "Booking", field = "booker")
+    public Map<BookingNode, UserNode> bookingBooker(List<BookingNode> bookings) {
+        return resolveUsers(bookings, BookingNode::getBookerId);
+    }
+
+    @BatchMapping(typeName = "ItemRequest", field = "requestor")
+    public Map<RequestNode, UserNode> requestRequestor(List<RequestNode> requests) {
+        return resolveUsers(requests, RequestNode::getRequestorId);
+    }
+
+    @BatchMapping(typeName = "ItemRequest", field = "items")
+    public Map<RequestNode, List<ItemNode>> requestItems(List<RequestNode> requests) {
+        List<Long> requestIds = ids(requests, RequestNode::getId);
+        Map<Long, List<ItemNode>> byRequest = fromAllShards(
+                        () -> itemRepository.findAllByRequestIdInOrderById(requestIds).stream().map(ItemNode::of).toList())
+                .stream()
+                .collect(Collectors.groupingBy(ItemNode::getRequestId));
+        return requests.stream().collect(Collectors.toMap(Function.identity(),
+                request -> byRequest.getOrDefault(request.getId(), List.of()), (first, second) -> first));
+    }
+
+    // бронирования видны только владельцу вещи, как lastBooking/nextBooking в REST
+    private Map<ItemNode, BookingNode> ownerBookings(List<ItemNode> items, GraphQLContext context,
+                                                     BiFunction<List<Long>, LocalDateTime, List<Booking>> query) {
+        Long callerId = context.get(GraphQlConfig.CALLER_ID);
+        List<ItemNode> owned = items.stream()
+                .filter(item -> item.getOwnerId().equals(callerId))
+                .toList();
+        if (owned.isEmpty()) {
+            return Map.of();
+        }
+
+        // все вещи вызывающего лежат на его шарде
+        List<Long> itemIds = ids(owned, ItemNode::getId);
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BookingNode> byItem = shardRouter.readOnShard(shardRouter.shardOf(callerId),
+                        () -> query.apply(itemIds, now)).stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), BookingNode::of));
+        return mapPresent(owned, item -> byItem.get(item.getId()));
+    }
+
+    private <P> Map<P, UserNode> resolveUsers(List<P> parents, Function<P, Long> userId) {
+        Map<Long, UserNode> usersById = userBatchLoader.loadAll(ids(parents, userId)).values().stream()
+                .map(UserNode::of)
+                .collect(Collectors.toMap(UserNode::getId, Function.identity()));
+        return mapPresent(parents, parent -> usersById.get(userId.apply(parent)));
+    }
+
+    // пакет вещей со всех шардов; ответ каждого шарда упорядочивается по id для слияния
+    private List<ItemNode> fromAllShards(Supplier<List<ItemNode>> query) {
+        Comparator<ItemNode> byId = Comparator.comparing(ItemNode::getId);
+        return shardRouter.scatterGather(shard -> query.get().stream().sorted(byId).toList(), byId);
+    }
+
+    private static <P> List<Long> ids(Collection<P> parents, Function<P, Long> id) {
+        return parents.stream().map(id).filter(Objects::nonNull).distinct().toList();
+    }
+
+    // ненайденные значения не кладутся в Map: отсутствующий ключ дает null в ответе
+    private static <P, V> Map<P, V> mapPresent(List<P> parents, Function<P, V> value) {
+        return parents.stream()
+                .map(parent -> Map.entry(parent, Optional.ofNullable(value.apply(parent))))
+                .filter(entry -> entry.getValue().isPresent())
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get(),
+                        (first, second) -> first));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.graphql.model;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.time.LocalDateTime;
+
+@Value
+public class BookingNode {
+    Long id;
+    LocalDateTime start;
+    LocalDateTime end;
+    String status;
+    Long itemId;
+    Long bookerId;
+
+    public static BookingNode of(Booking booking) {
+        return new BookingNode(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus().name(),
+                booking.getItem().getId(), booking.getBooker().getId());
+    }
+
+    public static BookingNode of(BookingResponseDto booking) {
+        return new BookingNode(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus().name(),
+                booking.getItem().getId(), booking.getBooker().getId());
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.graphql.model;
+
+import lombok.Value;
+import ru.practicum.shareit.item.repository.CommentView;
+
+import java.time.LocalDateTime;
+
+@Value
+public class CommentNode {
+    Long id;
+    String text;
+    String authorName;
+    LocalDateTime created;
+
+    public static CommentNode of(CommentView comment) {
+        return new CommentNode(comment.getId(), comment.getText(), comment.getAuthorName(), comment.getCreated());
+    }
+}
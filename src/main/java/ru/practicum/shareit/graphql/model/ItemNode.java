@@ -0,0 +1,21 @@
+package ru.practicum.shareit.graphql.model;
+
+import lombok.Value;
+import ru.practicum.shareit.item.model.Item;
+
+// связи хранятся как id: у ленивого прокси id читается без обращения к базе
+@Value
+public class ItemNode {
+    Long id;
+    String name;
+    String description;
+    Boolean available;
+    Long ownerId;
+    Long requestId;
+
+    public static ItemNode of(Item item) {
+        return new ItemNode(item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                item.getOwner().getId(),
+                item.getRequest() != null ? item.getRequest().getId() : null);
+    }
+}
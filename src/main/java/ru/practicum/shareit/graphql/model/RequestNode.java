@@ -0,0 +1,19 @@
+package ru.practicum.shareit.graphql.model;
+
+import lombok.Value;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.time.LocalDateTime;
+
+@Value
+public class RequestNode {
+    Long id;
+    String description;
+    LocalDateTime created;
+    Long requestorId;
+
+    public static RequestNode of(ItemRequest request) {
+        return new RequestNode(request.getId(), request.getDescription(), request.getCreated(),
+                request.getRequestor().getId());
+    }
+}
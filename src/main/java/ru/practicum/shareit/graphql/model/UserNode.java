@@ -0,0 +1,20 @@
+package ru.practicum.shareit.graphql.model;
+
+import lombok.Value;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+
+@Value
+public class UserNode {
+    Long id;
+    String name;
+    String email;
+
+    public static UserNode of(User user) {
+        return new UserNode(user.getId(), user.getName(), user.getEmail());
+    }
+
+    public static UserNode of(UserDto user) {
+        return new UserNode(user.getId(), user.getName(), user.getEmail());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// ключи идемпотентности принимаются только на создании бронирований и вещей
+@Configuration
+@ConditionalOnProperty(name = "shareit.idempotency.enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyFilter idempotencyFilter(IdempotencyStore store,
+                                               ObjectMapper objectMapper,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${shareit.idempotency.ttl:PT24H}") Duration ttl,
+                                               @Value("${shareit.idempotency.lease:PT1M}") Duration lease) {
+        return new IdempotencyFilter(store, objectMapper, ttl, lease, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilterRegistration(IdempotencyFilter filter) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/bookings", "/items");
+        return registration;
+    }
+}
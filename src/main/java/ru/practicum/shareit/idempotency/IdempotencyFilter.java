@@ -0,0 +1,156 @@
+package ru.practicum.shareit.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Повтор POST с тем же заголовком Idempotency-Key получает сохраненный ответ первого запроса,
+ * а сервис не вызывается второй раз. Ключ действует в пределах пользователя и адреса,
+ * тело повтора должно совпадать с первым (иначе 422). Пока первый запрос выполняется, повтор получает 409.
+ * Сохраняются только успешные ответы: после ошибки ключ освобождается и повтор выполняется заново.
+ * На время выполнения ключ берется в аренду на lease (дольше любого запроса), и только сохраненный ответ
+ * хранится ttl: ключ упавшего посреди запроса экземпляра освобождается через lease.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper, Duration ttl, Duration lease,
+                             MeterRegistry meterRegistry) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Ошибка валидации",
+                    "Заголовок " + KEY_HEADER + " должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+            return;
+        }
+
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String storeKey = request.getHeader(USER_HEADER) + ":" + request.getRequestURI() + ":" + key;
+        String fingerprint = fingerprint(cachedRequest.getBody());
+
+        Optional<IdempotencyRecord> existing;
+        try {
+            existing = store.reserve(storeKey, fingerprint, LocalDateTime.now().plus(lease));
+        } catch (IdempotencyStoreFullException e) {
+            count("rejected");
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "Сервис перегружен", e.getMessage());
+            return;
+        }
+        if (existing.isPresent()) {
+            replay(existing.get(), fingerprint, key, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(cachedRequest, cachedResponse);
+            if (HttpStatus.valueOf(cachedResponse.getStatus()).is2xxSuccessful()) {
+                store.complete(storeKey, new IdempotentResponse(cachedResponse.getStatus(),
+                        cachedResponse.getContentType(), cachedResponse.getContentAsByteArray()),
+                        LocalDateTime.now().plus(ttl));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.release(storeKey);
+            }
+            count(stored ? "stored" : "released");
+            cachedResponse.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyRecord record, String fingerprint, String key, HttpServletResponse response)
+            throws IOException {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            count("mismatch");
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "Ошибка валидации",
+                    "Ключ " + key + " уже использован с другим телом запроса");
+            return;
+        }
+        IdempotentResponse saved = record.getResponse();
+        if (saved == null) {
+            count("in_progress");
+            writeError(response, HttpStatus.CONFLICT, "Ошибка бизнес-логики",
+                    "Запрос с ключом " + key + " еще выполняется");
+            return;
+        }
+
+        log.debug("Повтор запроса с ключом {}: ответ взят из хранилища", key);
+        count("replayed");
+        response.setStatus(saved.getStatus());
+        if (saved.getContentType() != null) {
+            response.setContentType(saved.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(saved.getBody().length);
+        response.getOutputStream().write(saved.getBody());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", error, "message", message));
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("shareit.idempotency.requests", "result", result).increment();
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.Value;
+import lombok.With;
+
+import java.time.LocalDateTime;
+
+// response == null - запрос с этим ключом еще выполняется, и expiresAt - конец аренды ключа
+@Value
+@With
+public class IdempotencyRecord {
+    String fingerprint;
+    IdempotentResponse response;
+    LocalDateTime expiresAt;
+}
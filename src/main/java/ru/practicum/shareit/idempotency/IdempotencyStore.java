@@ -0,0 +1,19 @@
+package ru.practicum.shareit.idempotency;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyStore {
+
+    // занимает свободный или просроченный ключ до lockedUntil и возвращает пустой результат;
+    // если ключ уже занят, возвращает существующую запись и ничего не меняет.
+    // Короткая аренда: если экземпляр упал посреди запроса, ключ освободится сам, а не через полный ttl.
+    // Переполненное хранилище бросает IdempotencyStoreFullException, а не пропускает запрос без защиты
+    Optional<IdempotencyRecord> reserve(String key, String fingerprint, LocalDateTime lockedUntil);
+
+    // сохраняет ответ и продлевает ключ до expiresAt
+    void complete(String key, IdempotentResponse response, LocalDateTime expiresAt);
+
+    // запрос не удался: ключ освобождается, повтор выполнится заново
+    void release(String key);
+}
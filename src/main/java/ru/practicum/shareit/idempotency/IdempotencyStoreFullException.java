@@ -0,0 +1,9 @@
+package ru.practicum.shareit.idempotency;
+
+// в хранилище нет места под новый ключ: запрос отклоняется, иначе повтор мог бы выполниться дважды
+public class IdempotencyStoreFullException extends RuntimeException {
+
+    public IdempotencyStoreFullException(String message) {
+        super(message);
+    }
+}
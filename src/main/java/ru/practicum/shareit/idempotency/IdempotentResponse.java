@@ -0,0 +1,11 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.Value;
+
+// сохраненный успешный ответ, который отдается повторным запросам с тем же ключом
+@Value
+public class IdempotentResponse {
+    int status;
+    String contentType;
+    byte[] body;
+}
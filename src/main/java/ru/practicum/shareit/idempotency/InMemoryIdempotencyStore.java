@@ -0,0 +1,78 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ключи одного экземпляра приложения; при нескольких экземплярах нужен shareit.idempotency.store=jdbc
+@Component
+@ConditionalOnProperty(name = "shareit.idempotency.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    // при переполнении просроченные ключи вычищаются не чаще раза в интервал, а не полным проходом на каждый запрос
+    private static final long OVERFLOW_EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+    private final AtomicLong lastOverflowEviction = new AtomicLong(System.nanoTime() - OVERFLOW_EVICTION_INTERVAL_NANOS);
+    private final int maxEntries;
+
+    public InMemoryIdempotencyStore(@Value("${shareit.idempotency.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, String fingerprint, LocalDateTime lockedUntil) {
+        LocalDateTime now = LocalDateTime.now();
+        if (records.size() >= maxEntries && !records.containsKey(key)) {
+            evictOnOverflow();
+            if (records.size() >= maxEntries) {
+                log.warn("Хранилище ключей идемпотентности заполнено ({} записей), ключ {} отклонен", maxEntries, key);
+                throw new IdempotencyStoreFullException("Хранилище ключей идемпотентности заполнено");
+            }
+        }
+
+        IdempotencyRecord[] existing = new IdempotencyRecord[1];
+        records.compute(key, (k, current) -> {
+            if (current != null && current.getExpiresAt().isAfter(now)) {
+                existing[0] = current;
+                return current;
+            }
+            return new IdempotencyRecord(fingerprint, null, lockedUntil);
+        });
+        return Optional.ofNullable(existing[0]);
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response, LocalDateTime expiresAt) {
+        records.computeIfPresent(key, (k, current) -> current.withResponse(response).withExpiresAt(expiresAt));
+    }
+
+    @Override
+    public void release(String key) {
+        records.remove(key);
+    }
+
+    private void evictOnOverflow() {
+        long now = System.nanoTime();
+        long last = lastOverflowEviction.get();
+        if (now - last >= OVERFLOW_EVICTION_INTERVAL_NANOS && lastOverflowEviction.compareAndSet(last, now)) {
+            evictExpired();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.idempotency.cleanup-interval:PT1M}")
+    public void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        records.values().removeIf(record -> record.getExpiresAt().isBefore(now));
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+
+// ключи общие для всех экземпляров; таблица idempotency_keys (db/postgresql/idempotency-keys.sql),
+// expires_at у выполняющегося запроса - конец аренды, у завершенного - конец хранения ответа.
+// Запросы выполняются вне транзакций сервисов: ключ занимается до вызова и фиксируется сразу
+@Component
+@ConditionalOnProperty(name = "shareit.idempotency.store", havingValue = "jdbc")
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+
+    public JdbcIdempotencyStore(DataSource dataSource, ShardRouter shardRouter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> reserve(String key, String fingerprint, LocalDateTime lockedUntil) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at < ?",
+                key, Timestamp.valueOf(LocalDateTime.now()));
+        int inserted = jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, fingerprint, expires_at) " +
+                "VALUES (?, ?, ?) ON CONFLICT DO NOTHING", key, fingerprint, Timestamp.valueOf(lockedUntil));
+        if (inserted == 1) {
+            return Optional.empty();
+        }
+        return jdbcTemplate.query("SELECT fingerprint, status, content_type, body, expires_at " +
+                        "FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, rowNum) -> new IdempotencyRecord(
+                        rs.getString("fingerprint"),
+                        rs.getString("body") == null ? null : new IdempotentResponse(
+                                rs.getInt("status"),
+                                rs.getString("content_type"),
+                                Base64.getDecoder().decode(rs.getString("body"))),
+                        rs.getTimestamp("expires_at").toLocalDateTime()),
+                key).stream().findFirst();
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response, LocalDateTime expiresAt) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, content_type = ?, body = ?, expires_at = ? " +
+                        "WHERE idempotency_key = ?",
+                response.getStatus(), response.getContentType(),
+                Base64.getEncoder().encodeToString(response.getBody()), Timestamp.valueOf(expiresAt), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ?", key);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.idempotency.cleanup-interval:PT1M}")
+    public void evictExpired() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        shardRouter.forEachShard(shard -> {
+            int deleted = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ?", now);
+            if (deleted > 0) {
+                log.debug("Шард {}: удалено {} просроченных ключей идемпотентности", shard, deleted);
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.item.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
@@ -8,6 +9,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -47,11 +49,26 @@ public class ItemController {
         return itemService.updateItem(itemId, updates, userId);
     }
 
+    @PutMapping("/{itemId}/available")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void setAvailability(
+            @PathVariable @Positive Long itemId,
+            @RequestParam boolean value,
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        log.info("PUT /items/{}/available?value={} - доступность вещи пользователем с ID: {}", itemId, value, userId);
+        itemService.setAvailability(itemId, userId, value);
+    }
+
     @GetMapping("/{itemId}")
     public ItemDto getItemById(
             @PathVariable @Positive Long itemId,
-            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            WebRequest request) {
         log.info("GET /items/{} - получение вещи по ID пользователем с ID: {}", itemId, userId);
+        if (itemService.getItemTag(itemId, userId).filter(tag -> tag.checkNotModified(request)).isPresent()) {
+            log.debug("GET /items/{} - не изменилась, 304", itemId);
+            return null;
+        }
         return itemService.getItemById(itemId, userId);
     }
 
@@ -59,8 +76,13 @@ public class ItemController {
     public List<ItemDto> getAllItemsByOwner(
             @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            WebRequest request) {
         log.info("GET /items - получение всех вещей владельца с ID: {}", userId);
+        if (itemService.getOwnerItemsTag(userId, from, size).filter(tag -> tag.checkNotModified(request)).isPresent()) {
+            log.debug("GET /items - список вещей владельца ID {} не изменился, 304", userId);
+            return null;
+        }
         return itemService.getAllItemsByOwner(userId, from, size);
     }
 
@@ -92,4 +114,13 @@ public class ItemController {
         log.info("POST /items/{}/comment - добавление комментария пользователем ID: {}", itemId, userId);
         return itemService.addComment(itemId, commentDto, userId);
     }
+
+    @GetMapping("/{itemId}/comments")
+    public List<CommentDto> getComments(
+            @PathVariable @Positive Long itemId,
+            @RequestParam(required = false) @Positive Long beforeId,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size) {
+        log.info("GET /items/{}/comments?beforeId={} - получение комментариев вещи", itemId, beforeId);
+        return itemService.getComments(itemId, beforeId, size);
+    }
 }
\ No newline at end of file
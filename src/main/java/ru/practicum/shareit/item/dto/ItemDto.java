@@ -11,7 +11,7 @@ import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ItemDto {
@@ -36,6 +36,8 @@ public class ItemDto {
 
     private List<CommentDto> comments;
 
+    private Long commentCount;
+
     public interface Create {}
 
     public interface Update {}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+
+// частичное обновление вещи: null - поле не меняется; пустые строки и не-boolean available игнорируются
+@Value
+@Builder
+public class ItemPatch {
+    String name;
+    String description;
+    Boolean available;
+
+    public static ItemPatch from(Map<String, Object> updates) {
+        ItemPatchBuilder patch = ItemPatch.builder();
+        if (updates == null) {
+            return patch.build();
+        }
+
+        updates.forEach((key, value) -> {
+            switch (key) {
+                case "name":
+                    if (value != null && !value.toString().isBlank()) {
+                        patch.name(value.toString());
+                    }
+                    break;
+                case "description":
+                    if (value != null && !value.toString().isBlank()) {
+                        patch.description(value.toString());
+                    }
+                    break;
+                case "available":
+                    if (value instanceof Boolean) {
+                        patch.available((Boolean) value);
+                    }
+                    break;
+            }
+        });
+        return patch.build();
+    }
+
+    public boolean isEmpty() {
+        return name == null && description == null && available == null;
+    }
+
+    // меняется только доступность: ее можно обновить одним UPDATE без загрузки вещи
+    public boolean isAvailabilityOnly() {
+        return available != null && name == null && description == null;
+    }
+}
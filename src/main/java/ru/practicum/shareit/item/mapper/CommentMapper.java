@@ -5,6 +5,7 @@ import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.CommentView;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
@@ -25,6 +26,19 @@ public class CommentMapper {
                 .build();
     }
 
+    public static CommentDto toCommentDto(CommentView view) {
+        if (view == null) {
+            return null;
+        }
+
+        return CommentDto.builder()
+                .id(view.getId())
+                .text(view.getText())
+                .authorName(view.getAuthorName())
+                .created(view.getCreated())
+                .build();
+    }
+
     public static Comment toComment(CreateCommentDto createDto, Item item, User author) {
         if (createDto == null) {
             return null;
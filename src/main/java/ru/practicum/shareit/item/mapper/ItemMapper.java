@@ -3,12 +3,12 @@ package ru.practicum.shareit.item.mapper;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemPatch;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
-import java.util.Map;
 
 public class ItemMapper {
 
@@ -24,6 +24,7 @@ public class ItemMapper {
                 .available(item.getAvailable())
                 .ownerId(item.getOwner().getId())
                 .requestId(item.getRequest() != null ? item.getRequest().getId() : null)
+                .commentCount(item.getCommentCount())
                 .build();
     }
 
@@ -42,31 +43,17 @@ public class ItemMapper {
                 .build();
     }
 
-    public static Item updateFromMap(Item item, Map<String, Object> updates) {
-        if (updates == null || updates.isEmpty()) {
-            return item;
+    // меняются только заданные поля: с @DynamicUpdate в UPDATE попадут лишь они
+    public static Item applyPatch(Item item, ItemPatch patch) {
+        if (patch.getName() != null) {
+            item.setName(patch.getName());
+        }
+        if (patch.getDescription() != null) {
+            item.setDescription(patch.getDescription());
+        }
+        if (patch.getAvailable() != null) {
+            item.setAvailable(patch.getAvailable());
         }
-
-        updates.forEach((key, value) -> {
-            switch (key) {
-                case "name":
-                    if (value != null && !value.toString().isBlank()) {
-                        item.setName(value.toString());
-                    }
-                    break;
-                case "description":
-                    if (value != null && !value.toString().isBlank()) {
-                        item.setDescription(value.toString());
-                    }
-                    break;
-                case "available":
-                    if (value instanceof Boolean) {
-                        item.setAvailable((Boolean) value);
-                    }
-                    break;
-            }
-        });
-
         return item;
     }
 
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.item.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// пользователь завершил хотя бы одно подтвержденное бронирование вещи и может ее комментировать
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "comment_eligibility", schema = "public")
+public class CommentEligibility {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "first_completed_at", nullable = false)
+    private LocalDateTime firstCompletedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "item_id")
+        private Long itemId;
+
+        @Column(name = "booker_id")
+        private Long bookerId;
+    }
+}
@@ -5,13 +5,22 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// в UPDATE попадают только измененные столбцы
+@DynamicUpdate
+// помеченные на удаление строки не видны ни одному запросу, их дочищает TombstonePurger
+@SQLRestriction("deleted_at IS NULL")
 @Entity
 @Table(name = "items", schema = "public")
 public class Item {
@@ -35,4 +44,19 @@ public class Item {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "request_id")
     private ItemRequest request;
-}
\ No newline at end of file
+
+    // денормализованное число комментариев, увеличивается при добавлении комментария
+    @Column(name = "comment_count", nullable = false)
+    private long commentCount;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated", nullable = false)
+    private LocalDateTime updated;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+}
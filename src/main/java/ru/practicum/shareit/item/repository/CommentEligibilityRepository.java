@@ -0,0 +1,42 @@
+package ru.practicum.shareit.item.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.model.CommentEligibility;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+@Repository
+public interface CommentEligibilityRepository extends JpaRepository<CommentEligibility, CommentEligibility.Key> {
+
+    // повторное завершение бронирования той же пары ничего не меняет
+    @Modifying
+    @Query(value = "INSERT INTO comment_eligibility (item_id, booker_id, first_completed_at) " +
+            "VALUES (:itemId, :bookerId, :completedAt) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("itemId") Long itemId,
+                       @Param("bookerId") Long bookerId,
+                       @Param("completedAt") LocalDateTime completedAt);
+
+    // заполнение по бронированиям, завершенным до появления таблицы или пока планировщик фаз не работал
+    @Modifying
+    @Query(value = "INSERT INTO comment_eligibility (item_id, booker_id, first_completed_at) " +
+            "SELECT b.item_id, b.booker_id, MIN(b.end_date) " +
+            "FROM bookings b " +
+            "WHERE b.status = 'APPROVED' AND b.end_date < :now " +
+            "GROUP BY b.item_id, b.booker_id " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int backfill(@Param("now") LocalDateTime now);
+
+    // ключи для прогрева фильтра комментариев: курсор без загрузки сущностей в контекст
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT e.id.itemId, e.id.bookerId FROM CommentEligibility e")
+    Stream<Object[]> streamKeys();
+}
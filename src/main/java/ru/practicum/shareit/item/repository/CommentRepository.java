@@ -1,14 +1,66 @@
 package ru.practicum.shareit.item.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.common.ResourceVersion;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findAllByItemId(Long itemId);
 
-    List<Comment> findAllByItemIdIn(List<Long> itemIds);
-}
\ No newline at end of file
+    long countByItemId(Long itemId);
+
+    long countByAuthorId(Long authorId);
+
+    // комментарии всех авторов на вещах владельца: при удалении владельца их удаляет каскад вместе с вещами
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.item.owner.id = :ownerId")
+    long countByItemOwnerId(@Param("ownerId") Long ownerId);
+
+    // первая страница комментариев вещи, новые первыми; имя автора берётся тем же запросом;
+    // комментарии помеченных на удаление авторов скрыты до фоновой очистки
+    @Query("SELECT c.id AS id, c.text AS text, a.name AS authorName, c.created AS created, c.item.id AS itemId " +
+            "FROM Comment c JOIN c.author a " +
+            "WHERE c.item.id = :itemId AND a.deletedAt IS NULL " +
+            "ORDER BY c.id DESC")
+    List<CommentView> findViewsByItemId(@Param("itemId") Long itemId, Pageable pageable);
+
+    // следующая страница по ключу id последнего комментария
+    @Query("SELECT c.id AS id, c.text AS text, a.name AS authorName, c.created AS created, c.item.id AS itemId " +
+            "FROM Comment c JOIN c.author a " +
+            "WHERE c.item.id = :itemId AND c.id < :beforeId AND a.deletedAt IS NULL " +
+            "ORDER BY c.id DESC")
+    List<CommentView> findViewsByItemIdBefore(@Param("itemId") Long itemId,
+                                              @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+
+    // не более :limit последних комментариев каждой вещи одним запросом вместе с именами авторов
+    @Query(value = "SELECT ranked.id AS id, ranked.text AS text, u.name AS authorName, " +
+            "       ranked.created AS created, ranked.item_id AS itemId " +
+            "FROM (SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.item_id ORDER BY c.id DESC) AS rn " +
+            "      FROM comments c " +
+            "      WHERE c.item_id IN (:itemIds)) ranked " +
+            "JOIN users u ON u.id = ranked.author_id " +
+            "WHERE ranked.rn <= :limit AND u.deleted_at IS NULL " +
+            "ORDER BY ranked.item_id, ranked.id DESC", nativeQuery = true)
+    List<CommentView> findLatestViewsByItemIds(@Param("itemIds") Collection<Long> itemIds,
+                                               @Param("limit") int limit);
+
+    // отпечатки для ETag: в карточку входит имя автора, поэтому суммируется и его версия
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(c), MAX(c.id), SUM(c.version + i.version + a.version), MAX(c.updated), MAX(i.updated), MAX(a.updated)) " +
+            "FROM Comment c JOIN c.item i JOIN c.author a " +
+            "WHERE i.id = :itemId AND a.deletedAt IS NULL")
+    ResourceVersion findVersionByItemId(@Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(" +
+            "COUNT(c), MAX(c.id), SUM(c.version + i.version + a.version), MAX(c.updated), MAX(i.updated), MAX(a.updated)) " +
+            "FROM Comment c JOIN c.item i JOIN c.author a " +
+            "WHERE i.owner.id = :ownerId AND i.deletedAt IS NULL AND a.deletedAt IS NULL")
+    ResourceVersion findVersionByItemOwnerId(@Param("ownerId") Long ownerId);
+}
@@ -1,20 +1,68 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.common.ResourceVersion;
 import ru.practicum.shareit.item.model.Item;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findAllByOwnerId(Long ownerId);
 
+    List<Item> findAllByOwnerIdIn(Collection<Long> ownerIds);
+
+    List<Item> findAllByRequestIdInOrderById(Collection<Long> requestIds);
+
+    Optional<Item> findByIdAndAvailableTrue(Long itemId);
+
+    // только владелец, без загрузки вещи: по нему выбирается, какую карточку собирать
+    @Query("SELECT i.owner.id FROM Item i WHERE i.id = :itemId")
+    Optional<Long> findOwnerIdById(@Param("itemId") Long itemId);
+
+    // проверка владельца - часть WHERE: чужая или несуществующая вещь дает 0 обновленных строк
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.available = :available, i.version = i.version + 1, i.updated = LOCAL DATETIME " +
+            "WHERE i.id = :itemId AND i.owner.id = :ownerId")
+    int updateAvailability(
+            @Param("itemId") Long itemId,
+            @Param("ownerId") Long ownerId,
+            @Param("available") boolean available);
+
+    // вещь скрывается сразу, бронирования и комментарии удаляются позже (см. TombstonePurger)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.deletedAt = :now, i.version = i.version + 1 " +
+            "WHERE i.id = :itemId AND i.owner.id = :ownerId AND i.deletedAt IS NULL")
+    int markDeleted(@Param("itemId") Long itemId, @Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.deletedAt = :now, i.version = i.version + 1 " +
+            "WHERE i.owner.id = :ownerId AND i.deletedAt IS NULL")
+    int markDeletedByOwnerId(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.commentCount = i.commentCount + 1, " +
+            "i.version = i.version + 1, i.updated = LOCAL DATETIME " +
+            "WHERE i.id = :itemId")
+    int incrementCommentCount(@Param("itemId") Long itemId);
+
     @Query("SELECT i FROM Item i " +
             "WHERE i.available = true AND " +
             "(LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
             "LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%')))")
     List<Item> searchAvailableItems(@Param("text") String text);
-}
\ No newline at end of file
+
+    // отпечатки для ETag: одна строка агрегатов по индексу, без загрузки сущностей
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(COUNT(i), MAX(i.id), SUM(i.version), MAX(i.updated)) " +
+            "FROM Item i WHERE i.id = :itemId")
+    ResourceVersion findVersionById(@Param("itemId") Long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.common.ResourceVersion(COUNT(i), MAX(i.id), SUM(i.version), MAX(i.updated)) " +
+            "FROM Item i WHERE i.owner.id = :ownerId")
+    ResourceVersion findVersionByOwnerId(@Param("ownerId") Long ownerId);
+}
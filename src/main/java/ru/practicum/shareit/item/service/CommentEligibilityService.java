@@ -0,0 +1,160 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.booking.event.BookingEventType;
+import ru.practicum.shareit.booking.event.BookingPhaseChangedEvent;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.CommentEligibility;
+import ru.practicum.shareit.item.repository.CommentEligibilityRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Право оставить комментарий: пара вещь-арендатор с завершенным подтвержденным бронированием.
+ * Перед таблицей стоит фильтр Блума по всем парам с подтвержденными бронированиями,
+ * он отсекает тех, кто вещь никогда не брал, без обращения к базе.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class CommentEligibilityService {
+
+    private final CommentEligibilityRepository eligibilityRepository;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final boolean filterEnabled;
+    private final PairBloomFilter filter;
+    // до прогрева фильтр пуст и его отрицательный ответ ничего не значит
+    private volatile boolean filterReady;
+
+    private final Counter filteredCounter;
+    private final Counter tableHitCounter;
+    private final Counter bookingsHitCounter;
+    private final Counter deniedCounter;
+
+    public CommentEligibilityService(CommentEligibilityRepository eligibilityRepository,
+                                     BookingRepository bookingRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     ShardRouter shardRouter,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${shareit.comments.eligibility-filter.enabled:true}") boolean filterEnabled,
+                                     @Value("${shareit.comments.eligibility-filter.bits:1048576}") long filterBits,
+                                     @Value("${shareit.comments.eligibility-filter.hashes:5}") int filterHashes) {
+        this.eligibilityRepository = eligibilityRepository;
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.filterEnabled = filterEnabled;
+        this.filter = new PairBloomFilter(filterBits, filterHashes);
+
+        this.filteredCounter = eligibilityCounter(meterRegistry, "filtered");
+        this.tableHitCounter = eligibilityCounter(meterRegistry, "table");
+        this.bookingsHitCounter = eligibilityCounter(meterRegistry, "bookings");
+        this.deniedCounter = eligibilityCounter(meterRegistry, "denied");
+    }
+
+    // фильтр общий, а пары лежат на шардах вещей: каждый шард дозаполняется и читается в своей транзакции
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void warmUp() {
+        shardRouter.forEachShard(shard -> transactionTemplate.executeWithoutResult(status -> warmUpShard(shard)));
+        filterReady = filterEnabled;
+    }
+
+    private void warmUpShard(int shard) {
+        int backfilled = eligibilityRepository.backfill(LocalDateTime.now());
+
+        if (filterEnabled) {
+            // сначала уже заработанное право из comment_eligibility, затем пары, которые его еще заработают;
+            // обе выборки читаются курсором, в памяти остается только фильтр
+            long pairs = 0;
+            try (Stream<Object[]> eligible = eligibilityRepository.streamKeys();
+                 Stream<Object[]> pending = bookingRepository.streamUnfinishedApprovedItemBookerPairs()) {
+                Iterator<Object[]> iterator = Stream.concat(eligible, pending).iterator();
+                while (iterator.hasNext()) {
+                    Object[] pair = iterator.next();
+                    filter.add((Long) pair[0], (Long) pair[1]);
+                    pairs++;
+                }
+            }
+            log.info("Шард {}: фильтр права на комментарий прогрет: {} пар, дозаполнено строк: {}",
+                    shard, pairs, backfilled);
+        }
+    }
+
+    @Transactional
+    public boolean isEligible(Long itemId, Long bookerId, LocalDateTime now) {
+        if (filterReady && !filter.mightContain(itemId, bookerId)) {
+            filteredCounter.increment();
+            return false;
+        }
+
+        if (eligibilityRepository.existsById(new CommentEligibility.Key(itemId, bookerId))) {
+            tableHitCounter.increment();
+            return true;
+        }
+
+        // бронирование могло завершиться, а планировщик фаз еще не перевел его в FINISHED
+        if (bookingRepository.existsByItemIdAndBookerIdAndStatusAndEndBefore(
+                itemId, bookerId, BookingStatus.APPROVED, now)) {
+            eligibilityRepository.insertIfAbsent(itemId, bookerId, now);
+            bookingsHitCounter.increment();
+            return true;
+        }
+
+        deniedCounter.increment();
+        return false;
+    }
+
+    @EventListener
+    @Transactional
+    public void onBookingEvent(BookingEvent event) {
+        if (event.getType() != BookingEventType.APPROVED) {
+            return;
+        }
+
+        // в фильтр попадает любое подтверждение: ложное "да" лишь отправит проверку в базу
+        filter.add(event.getItemId(), event.getBookerId());
+
+        if (event.getPhase() == BookingPhase.FINISHED) {
+            eligibilityRepository.insertIfAbsent(event.getItemId(), event.getBookerId(), event.getEnd());
+        }
+    }
+
+    @EventListener
+    @Transactional
+    public void onBookingPhaseChanged(BookingPhaseChangedEvent event) {
+        if (event.getTo() != BookingPhase.FINISHED) {
+            return;
+        }
+
+        bookingRepository.findById(event.getBookingId())
+                .filter(booking -> booking.getStatus() == BookingStatus.APPROVED)
+                .ifPresent(booking -> eligibilityRepository.insertIfAbsent(
+                        booking.getItem().getId(), booking.getBooker().getId(), booking.getEnd()));
+    }
+
+    private static Counter eligibilityCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("shareit.comments.eligibility")
+                .description("Проверки права на комментарий по источнику ответа")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
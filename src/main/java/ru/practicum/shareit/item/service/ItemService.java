@@ -1,11 +1,13 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.common.EntityTag;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface ItemService {
 
@@ -13,6 +15,9 @@ public interface ItemService {
 
     ItemDto updateItem(Long itemId, Map<String, Object> updates, Long ownerId);
 
+    // только флаг доступности: один UPDATE без загрузки вещи и без ответа
+    void setAvailability(Long itemId, Long ownerId, boolean available);
+
     ItemDto getItemById(Long itemId, Long userId);
 
     List<ItemDto> getAllItemsByOwner(Long ownerId, Integer from, Integer size);
@@ -22,4 +27,11 @@ public interface ItemService {
     void deleteItem(Long itemId, Long ownerId);
 
     CommentDto addComment(Long itemId, CreateCommentDto commentDto, Long authorId);
+
+    List<CommentDto> getComments(Long itemId, Long beforeId, Integer size);
+
+    // пустой результат - вещи нет, ответ соберет и проверит основной метод
+    Optional<EntityTag> getItemTag(Long itemId, Long userId);
+
+    Optional<EntityTag> getOwnerItemsTag(Long ownerId, Integer from, Integer size);
 }
\ No newline at end of file
@@ -2,22 +2,35 @@ package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.common.EntityTag;
+import ru.practicum.shareit.common.ResourceVersion;
+import ru.practicum.shareit.common.TombstonePurger;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemPatch;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.CommentView;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.outbox.model.AggregateType;
+import ru.practicum.shareit.outbox.service.OutboxService;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
@@ -26,6 +39,8 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +53,16 @@ public class ItemServiceImpl implements ItemService {
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final OutboxService outboxService;
+    private final CommentEligibilityService commentEligibilityService;
+    private final ShardRouter shardRouter;
+    private final TombstonePurger tombstonePurger;
+    private final ItemViewCoalescer itemViewCoalescer;
+
+    // в карточку вещи попадает только окно последних комментариев, остальные доступны постранично
+    @Value("${shareit.items.latest-comments:10}")
+    private int latestCommentsLimit;
 
     @Override
     @Transactional
@@ -46,11 +71,20 @@ public class ItemServiceImpl implements ItemService {
 
         User owner = findUserById(ownerId);
 
-        Item item = ItemMapper.toItem(itemDto, owner, null);
+        ItemRequest request = null;
+        if (itemDto.getRequestId() != null) {
+            request = itemRequestRepository.findById(itemDto.getRequestId())
+                    .orElseThrow(() -> new NoSuchElementException("Запрос с ID " + itemDto.getRequestId() + " не найден"));
+        }
+
+        Item item = ItemMapper.toItem(itemDto, owner, request);
         Item savedItem = itemRepository.save(item);
 
+        ItemDto result = ItemMapper.toItemDto(savedItem);
+        outboxService.record(AggregateType.ITEM, savedItem.getId(), "CREATED", result);
+
         log.debug("Вещь создана с ID: {}", savedItem.getId());
-        return ItemMapper.toItemDto(savedItem);
+        return result;
     }
 
     @Override
@@ -58,11 +92,21 @@ public class ItemServiceImpl implements ItemService {
     public ItemDto updateItem(Long itemId, Map<String, Object> updates, Long ownerId) {
         log.info("Обновление вещи с ID: {} пользователем с ID: {}", itemId, ownerId);
 
-        Item item = findItemById(itemId);
-        verificationOwnerItem(item, ownerId);
-
-        Item updatedItem = ItemMapper.updateFromMap(item, updates);
-        Item savedItem = itemRepository.save(updatedItem);
+        ItemPatch patch = ItemPatch.from(updates);
+        Item savedItem;
+
+        if (patch.isAvailabilityOnly()) {
+            // один UPDATE без загрузки и проверки грязных полей; владелец проверяется в WHERE
+            if (itemRepository.updateAvailability(itemId, ownerId, patch.getAvailable()) == 0) {
+                throw new NoSuchElementException("Вещь с ID " + itemId + " не найдена у пользователя с ID " + ownerId);
+            }
+            savedItem = findItemById(itemId);
+        } else {
+            Item item = findItemById(itemId);
+            verificationOwnerItem(item, ownerId);
+            savedItem = itemRepository.save(ItemMapper.applyPatch(item, patch));
+        }
+        outboxService.record(AggregateType.ITEM, itemId, "UPDATED", ItemMapper.toItemDto(savedItem));
 
         log.debug("Вещь с ID {} обновлена", itemId);
 
@@ -70,12 +114,32 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
+    @Transactional
+    public void setAvailability(Long itemId, Long ownerId, boolean available) {
+        log.info("Вещь с ID: {} {} пользователем с ID: {}", itemId, available ? "открыта для аренды" : "снята с аренды", ownerId);
+
+        if (itemRepository.updateAvailability(itemId, ownerId, available) == 0) {
+            throw new NoSuchElementException("Вещь с ID " + itemId + " не найдена у пользователя с ID " + ownerId);
+        }
+        outboxService.record(AggregateType.ITEM, itemId, "AVAILABILITY_CHANGED",
+                Map.of("id", itemId, "ownerId", ownerId, "available", available));
+    }
+
+    // без собственной транзакции: ее открывает только тот запрос, который собирает карточку
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ItemDto getItemById(Long itemId, Long userId) {
         log.info("Получение вещи с ID: {} пользователем с ID: {}", itemId, userId);
 
-        Item item = findItemById(itemId);
-
-        return enhanceItemDtoWithBookingsAndComments(item, userId);
+        Long ownerId = itemRepository.findOwnerIdById(itemId)
+                .orElseThrow(() -> new NoSuchElementException("Вещь с ID " + itemId + " не найдена"));
+        if (ownerId.equals(userId)) {
+            // владельцу нужны ближайшие бронирования, его карточка собирается отдельно и не ждет чужих
+            return itemViewCoalescer.inTransaction(
+                    () -> enhanceItemDtoWithBookingsAndComments(findItemById(itemId), userId));
+        }
+        return itemViewCoalescer.publicView(itemId,
+                () -> enhanceItemDtoWithBookingsAndComments(findItemById(itemId), null));
     }
 
     @Override
@@ -107,31 +171,27 @@ public class ItemServiceImpl implements ItemService {
 
         LocalDateTime now = LocalDateTime.now();
 
-        // Получаем все бронирования для этих вещей (3 запрос)
-        List<Booking> allBookings = bookingRepository.findAllApprovedByItemIds(itemIds);
+        // Последнее и следующее бронирование каждой вещи, не больше строки на вещь (3 и 4 запросы)
+        Map<Long, Booking> lastByItemId = byItemId(bookingRepository.findLastFinishedBookingsForItems(itemIds, now));
+        Map<Long, Booking> nextByItemId = byItemId(bookingRepository.findNextBookingsForItems(itemIds, now));
 
-        // Группируем бронирования по ID вещи
-        Map<Long, List<Booking>> bookingsByItemId = allBookings.stream()
-                .collect(Collectors.groupingBy(booking -> booking.getItem().getId()));
-
-        // Получаем все комментарии для этих вещей (4 запрос)
-        List<Comment> allComments = commentRepository.findAllByItemIdIn(itemIds);
+        // Получаем последние комментарии для этих вещей (5 запрос)
+        List<CommentView> allComments = commentRepository.findLatestViewsByItemIds(itemIds, latestCommentsLimit);
 
         // Группируем комментарии по ID вещи
-        Map<Long, List<Comment>> commentsByItemId = allComments.stream()
-                .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
+        Map<Long, List<CommentView>> commentsByItemId = allComments.stream()
+                .collect(Collectors.groupingBy(CommentView::getItemId));
 
         // Формируем результат, используя данные из мап
         return paginatedItems.stream()
                 .map(item -> {
-                    List<Booking> itemBookings = bookingsByItemId.getOrDefault(item.getId(), List.of());
-                    List<Comment> itemComments = commentsByItemId.getOrDefault(item.getId(), List.of());
+                    List<CommentView> itemComments = commentsByItemId.getOrDefault(item.getId(), List.of());
 
                     return enhanceItemDtoWithBookingsAndCommentsFromMaps(
                             item,
-                            itemBookings,
+                            lastByItemId.get(item.getId()),
+                            nextByItemId.get(item.getId()),
                             itemComments,
-                            now,
                             ownerId
                     );
                 })
@@ -146,15 +206,16 @@ public class ItemServiceImpl implements ItemService {
             return List.of();
         }
 
-        List<Item> items = itemRepository.searchAvailableItems(text);
+        // вещи разных владельцев лежат на разных шардах
+        List<ItemDto> items = shardRouter.scatterGather(
+                shard -> itemRepository.searchAvailableItems(text).stream()
+                        .map(ItemMapper::toItemDto)
+                        .toList(),
+                Comparator.comparing(ItemDto::getId));
 
-        List<Item> paginatedItems = items.stream()
+        return items.stream()
                 .skip(from)
                 .limit(size)
-                .toList();
-
-        return paginatedItems.stream()
-                .map(ItemMapper::toItemDto)
                 .collect(Collectors.toList());
     }
 
@@ -163,10 +224,16 @@ public class ItemServiceImpl implements ItemService {
     public void deleteItem(Long itemId, Long ownerId) {
         log.info("Удаление вещи с ID: {} пользователем с ID: {}", itemId, ownerId);
 
-        Item item = findItemById(itemId);
-        verificationOwnerItem(item, ownerId);
-
-        itemRepository.deleteById(itemId);
+        // вещь скрывается одним UPDATE без загрузки; немногочисленные зависимые строки удаляются
+        // каскадом сразу, остальные - фоновой очисткой порциями
+        long dependents = bookingRepository.countByItemId(itemId) + commentRepository.countByItemId(itemId);
+        if (itemRepository.markDeleted(itemId, ownerId, LocalDateTime.now()) == 0) {
+            throw new NoSuchElementException("Вещь с ID " + itemId + " не найдена у пользователя с ID " + ownerId);
+        }
+        if (tombstonePurger.isSmall(dependents)) {
+            tombstonePurger.deleteItemNow(itemId);
+        }
+        outboxService.record(AggregateType.ITEM, itemId, "DELETED", Map.of("id", itemId, "ownerId", ownerId));
         log.info("Вещь с ID {} удалена", itemId);
     }
 
@@ -192,22 +259,65 @@ public class ItemServiceImpl implements ItemService {
 
         // Проверяем, что пользователь брал и вернул эту вещь
         LocalDateTime now = LocalDateTime.now();
-        boolean hasBookedAndFinished = bookingRepository
-                .existsByItemIdAndBookerIdAndEndBefore(itemId, authorId, now);
-
-        if (!hasBookedAndFinished) {
+        if (!commentEligibilityService.isEligible(itemId, authorId, now)) {
             throw new ValidationException("Вы можете оставить комментарий только после завершения бронирования");
         }
 
         Comment comment = CommentMapper.toComment(commentDto, item, author);
         Comment savedComment = commentRepository.save(comment);
+        itemRepository.incrementCommentCount(itemId);
 
         log.info("Комментарий добавлен с ID: {}", savedComment.getId());
         return CommentMapper.toCommentDto(savedComment);
     }
 
+    @Override
+    public List<CommentDto> getComments(Long itemId, Long beforeId, Integer size) {
+        log.info("Получение комментариев вещи ID: {} до комментария ID: {}", itemId, beforeId);
+
+        if (!itemRepository.existsById(itemId)) {
+            throw new NoSuchElementException("Вещь с ID " + itemId + " не найдена");
+        }
+
+        PageRequest page = PageRequest.of(0, size);
+
+        List<CommentView> comments = beforeId == null
+                ? commentRepository.findViewsByItemId(itemId, page)
+                : commentRepository.findViewsByItemIdBefore(itemId, beforeId, page);
+
+        return comments.stream()
+                .map(CommentMapper::toCommentDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<EntityTag> getItemTag(Long itemId, Long userId) {
+        ResourceVersion item = itemRepository.findVersionById(itemId);
+        if (item.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // карточка зависит от зрителя (бронирования видит только владелец), поэтому он входит в тег
+        ResourceVersion bookings = bookingRepository.findVersionByItemId(itemId);
+        ResourceVersion comments = commentRepository.findVersionByItemId(itemId);
+        return Optional.of(EntityTag.strong("item", itemId, userId, item, bookings, comments));
+    }
+
+    @Override
+    public Optional<EntityTag> getOwnerItemsTag(Long ownerId, Integer from, Integer size) {
+        if (!userRepository.existsById(ownerId)) {
+            return Optional.empty();
+        }
+
+        ResourceVersion items = itemRepository.findVersionByOwnerId(ownerId);
+        ResourceVersion bookings = bookingRepository.findVersionByItemOwnerId(ownerId);
+        ResourceVersion comments = commentRepository.findVersionByItemOwnerId(ownerId);
+        return Optional.of(EntityTag.weak("items", ownerId, from, size, items, bookings, comments));
+    }
+
     private ItemDto enhanceItemDtoWithBookingsAndComments(Item item, Long userId) {
-        List<CommentDto> comments = commentRepository.findAllByItemId(item.getId()).stream()
+        List<CommentDto> comments = commentRepository
+                .findViewsByItemId(item.getId(), PageRequest.of(0, latestCommentsLimit)).stream()
                 .map(CommentMapper::toCommentDto)
                 .collect(Collectors.toList());
 
@@ -215,8 +325,8 @@ public class ItemServiceImpl implements ItemService {
         if (item.getOwner().getId().equals(userId)) {
             LocalDateTime now = LocalDateTime.now();
 
-            List<Booking> lastBookings = bookingRepository.findLastBookingForItem(item.getId(), now);
-            List<Booking> nextBookings = bookingRepository.findNextBookingForItem(item.getId(), now);
+            List<Booking> lastBookings = bookingRepository.findLastBookingsForItems(List.of(item.getId()), now);
+            List<Booking> nextBookings = bookingRepository.findNextBookingsForItems(List.of(item.getId()), now);
 
             BookingResponseDto lastBooking = lastBookings.isEmpty() ? null :
                     BookingMapper.toBookingResponseDto(lastBookings.get(0));
@@ -235,9 +345,9 @@ public class ItemServiceImpl implements ItemService {
 
     private ItemDto enhanceItemDtoWithBookingsAndCommentsFromMaps(
             Item item,
-            List<Booking> itemBookings,
-            List<Comment> itemComments,
-            LocalDateTime now,
+            Booking last,
+            Booking next,
+            List<CommentView> itemComments,
             Long userId) {
 
         List<CommentDto> commentDtos = itemComments.stream()
@@ -245,24 +355,16 @@ public class ItemServiceImpl implements ItemService {
                 .collect(Collectors.toList());
 
         if (item.getOwner().getId().equals(userId)) {
-            List<Booking> pastBookings = itemBookings.stream()
-                    .filter(b -> b.getEnd().isBefore(now))
-                    .sorted((b1, b2) -> b2.getEnd().compareTo(b1.getEnd()))
-                    .toList();
-
-            List<Booking> futureBookings = itemBookings.stream()
-                    .filter(b -> b.getStart().isAfter(now))
-                    .sorted(Comparator.comparing(Booking::getStart))
-                    .toList();
-
-            BookingResponseDto lastBooking = pastBookings.isEmpty() ? null :
-                    BookingMapper.toBookingResponseDto(pastBookings.get(0));
-            BookingResponseDto nextBooking = futureBookings.isEmpty() ? null :
-                    BookingMapper.toBookingResponseDto(futureBookings.get(0));
+            BookingResponseDto lastBooking = last == null ? null : BookingMapper.toBookingResponseDto(last);
+            BookingResponseDto nextBooking = next == null ? null : BookingMapper.toBookingResponseDto(next);
 
             return ItemMapper.toItemDtoWithBookings(item, lastBooking, nextBooking, commentDtos);
         }
 
         return ItemMapper.toItemDtoWithComments(item, commentDtos);
     }
-}
\ No newline at end of file
+
+    private static Map<Long, Booking> byItemId(List<Booking> bookings) {
+        return bookings.stream().collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity()));
+    }
+}
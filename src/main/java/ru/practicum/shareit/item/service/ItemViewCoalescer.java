@@ -0,0 +1,51 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.common.SingleFlight;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// карточка вещи для не-владельцев одинакова для всех, поэтому одновременные запросы одной вещи
+// собирает один из них; транзакцию открывает только он, ожидающие не держат соединений
+@Component
+public class ItemViewCoalescer {
+
+    private final SingleFlight<Long, ItemDto> publicViews;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ItemViewCoalescer(MeterRegistry meterRegistry,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${shareit.items.view-coalescing.wait-timeout:PT2S}") Duration waitTimeout) {
+        this.publicViews = new SingleFlight<>("item-view", meterRegistry, waitTimeout);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // общий результат не отдается наружу: у каждого вызова своя копия, и изменения одного не видны другим
+    public ItemDto publicView(Long itemId, Supplier<ItemDto> view) {
+        return copy(publicViews.execute(itemId, () -> inTransaction(view)));
+    }
+
+    public ItemDto inTransaction(Supplier<ItemDto> view) {
+        return readOnlyTransaction.execute(status -> view.get());
+    }
+
+    // в карточке для не-владельцев нет бронирований: изменяемые части - сама карточка и отзывы
+    private static ItemDto copy(ItemDto view) {
+        if (view.getComments() == null) {
+            return view.toBuilder().build();
+        }
+        return view.toBuilder()
+                .comments(view.getComments().stream()
+                        .map(comment -> comment.toBuilder().build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
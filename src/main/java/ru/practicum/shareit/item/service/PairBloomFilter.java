@@ -0,0 +1,66 @@
+package ru.practicum.shareit.item.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// фильтр Блума по паре идентификаторов: "нет" - точно не добавлялась, "да" - возможно добавлялась
+class PairBloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    PairBloomFilter(long bits, int hashCount) {
+        if (bits < Long.SIZE || hashCount < 1) {
+            throw new IllegalArgumentException("Некорректные параметры фильтра Блума: bits=" + bits + ", hashes=" + hashCount);
+        }
+        int wordCount = (int) Math.min(Integer.MAX_VALUE, (bits + Long.SIZE - 1) / Long.SIZE);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    void add(long first, long second) {
+        long h1 = firstHash(first, second);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    boolean mightContain(long first, long second) {
+        long h1 = firstHash(first, second);
+        long h2 = secondHash(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // двойное хеширование: k позиций из двух независимых 64-битных хешей
+    private static long firstHash(long first, long second) {
+        return mix(mix(first) + second);
+    }
+
+    private static long secondHash(long firstHash) {
+        return mix(firstHash + 0x9e3779b97f4a7c15L) | 1;
+    }
+
+    // финализатор SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDto {
+
+    private NotificationType type;
+
+    private Long bookingId;
+
+    private Long itemId;
+
+    private Long requestId;
+
+    private String status;
+
+    private String description;
+
+    private LocalDateTime created;
+}
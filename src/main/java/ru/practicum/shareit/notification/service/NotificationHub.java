@@ -0,0 +1,186 @@
+package ru.practicum.shareit.notification.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.notification.dto.NotificationDto;
+import ru.practicum.shareit.notification.dto.NotificationType;
+import ru.practicum.shareit.request.event.ItemRequestCreatedEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+@Slf4j
+public class NotificationHub {
+
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // отправка в SSE блокирующая, поэтому каждую подписку дренирует отдельный виртуальный поток
+    private final ExecutorService dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public NotificationHub(@Value("${shareit.notifications.buffer-size:64}") int bufferSize,
+                           @Value("${shareit.notifications.timeout:PT30M}") Duration timeout) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter, bufferSize);
+
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> {
+            unsubscribe(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        log.debug("Пользователь ID {} подписался на уведомления", userId);
+        return emitter;
+    }
+
+    public int getSubscriberCount(Long userId) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        return userSubscribers == null ? 0 : userSubscribers.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onBookingEvent(BookingEvent event) {
+        NotificationDto notification = NotificationDto.builder()
+                .bookingId(event.getBookingId())
+                .itemId(event.getItemId())
+                .status(event.getStatus().name())
+                .created(LocalDateTime.now())
+                .build();
+
+        switch (event.getType()) {
+            case CREATED:
+                notification.setType(NotificationType.BOOKING_CREATED);
+                publish(event.getOwnerId(), notification);
+                break;
+            case APPROVED:
+                notification.setType(NotificationType.BOOKING_APPROVED);
+                publish(event.getBookerId(), notification);
+                break;
+            case REJECTED:
+                notification.setType(NotificationType.BOOKING_REJECTED);
+                publish(event.getBookerId(), notification);
+                break;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onItemRequestCreated(ItemRequestCreatedEvent event) {
+        NotificationDto notification = NotificationDto.builder()
+                .type(NotificationType.ITEM_REQUEST_CREATED)
+                .requestId(event.getRequestId())
+                .description(event.getDescription())
+                .created(event.getCreated())
+                .build();
+
+        subscribers.forEach((userId, userSubscribers) -> {
+            if (!userId.equals(event.getRequestorId())) {
+                userSubscribers.forEach(subscriber -> enqueue(subscriber, notification));
+            }
+        });
+    }
+
+    public void publish(Long userId, NotificationDto notification) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers == null) {
+            return;
+        }
+        userSubscribers.forEach(subscriber -> enqueue(subscriber, notification));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.values().forEach(userSubscribers ->
+                userSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private void enqueue(Subscriber subscriber, NotificationDto notification) {
+        // буфер ограничен: при переполнении вытесняем самое старое событие,
+        // чтобы медленный клиент не задерживал публикацию и остальных подписчиков
+        while (!subscriber.buffer.offer(notification)) {
+            if (subscriber.buffer.poll() != null) {
+                log.debug("Буфер уведомлений пользователя ID {} переполнен, старое событие отброшено",
+                        subscriber.userId);
+            }
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            NotificationDto notification;
+            while (!subscriber.closed && (notification = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .name(notification.getType().name())
+                        .data(notification));
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Подписка пользователя ID {} закрыта: {}", subscriber.userId, e.getMessage());
+            subscriber.closed = true;
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // событие могло прийти между последним poll и сбросом флага
+        if (!subscriber.closed && !subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<NotificationDto> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(Long userId, SseEmitter emitter, int bufferSize) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.shareit.outbox.model;
+
+public enum AggregateType {
+    BOOKING,
+    ITEM
+}
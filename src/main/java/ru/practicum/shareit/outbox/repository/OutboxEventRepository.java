@@ -0,0 +1,33 @@
+package ru.practicum.shareit.outbox.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // голова очереди каждого агрегата - событие без более ранних событий того же агрегата.
+    // Захватываются только головы: пока одна голова у ретранслятора, остальные события агрегата
+    // никто другой взять не может, а захваченные другим экземпляром головы пропускаются, а не ожидаются
+    @Query(value = "SELECT * FROM outbox_events e " +
+            "WHERE NOT EXISTS (SELECT 1 FROM outbox_events p " +
+            "                  WHERE p.aggregate_type = e.aggregate_type " +
+            "                  AND p.aggregate_id = e.aggregate_id AND p.id < e.id) " +
+            "ORDER BY e.id " +
+            "LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextHeads(@Param("limit") int limit);
+
+    @Query("SELECT e FROM OutboxEvent e WHERE e.aggregateId IN :aggregateIds ORDER BY e.id")
+    List<OutboxEvent> findAllByAggregateIdIn(@Param("aggregateIds") Collection<Long> aggregateIds);
+
+    @Query("SELECT MIN(e.created) FROM OutboxEvent e")
+    LocalDateTime findOldestCreated();
+}
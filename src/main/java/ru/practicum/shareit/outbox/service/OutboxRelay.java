@@ -0,0 +1,145 @@
+package ru.practicum.shareit.outbox.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.repository.OutboxEventRepository;
+import ru.practicum.shareit.outbox.sink.OutboxSink;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    // события пишутся в транзакции бронирования или вещи, то есть на ее шарде; метрики - по всем шардам
+    private final Map<Integer, Long> pendingByShard = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> lagMillisByShard = new ConcurrentHashMap<>();
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxSink sink,
+                       TransactionTemplate transactionTemplate,
+                       ShardRouter shardRouter,
+                       MeterRegistry meterRegistry,
+                       @Value("${shareit.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${shareit.outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${shareit.outbox.relay.max-batches-per-run:50}") int maxBatchesPerRun) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        Gauge.builder("shareit.outbox.pending", pendingByShard,
+                        values -> values.values().stream().mapToLong(Long::longValue).sum())
+                .description("Количество неотправленных событий outbox")
+                .register(meterRegistry);
+        Gauge.builder("shareit.outbox.lag.seconds", lagMillisByShard,
+                        values -> values.values().stream().mapToLong(Long::longValue).max().orElse(0) / 1000.0)
+                .description("Возраст самого старого неотправленного события outbox")
+                .register(meterRegistry);
+        this.relayedCounter = Counter.builder("shareit.outbox.relayed")
+                .description("Количество отправленных событий outbox")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("shareit.outbox.failed.batches")
+                .description("Количество пакетов outbox, отправка которых завершилась ошибкой")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.relay.interval:PT1S}")
+    public void scheduledRelay() {
+        if (!enabled) {
+            return;
+        }
+        shardRouter.forEachShard(shard -> relay());
+    }
+
+    // отправляет события шарда текущего потока
+    public int relay() {
+        int relayed = 0;
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int sent = relayBatch();
+                relayed += sent;
+                if (sent == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Ошибка отправки событий outbox, пакет будет повторен: {}", e.getMessage());
+        }
+        updateLagMetrics();
+        return relayed;
+    }
+
+    // пакет захватывается, отправляется и удаляется в одной транзакции:
+    // при ошибке приемника строки остаются в таблице и будут отправлены повторно в том же порядке.
+    // Порядок гарантируется внутри агрегата: пакет содержит все события захваченных агрегатов по возрастанию id.
+    // Изменения одного агрегата сериализуются блокировкой его строки, поэтому их id фиксируются по порядку;
+    // между разными агрегатами порядок не гарантируется
+    private int relayBatch() {
+        Integer sent = transactionTemplate.execute(status -> {
+            List<OutboxEvent> heads = outboxEventRepository.lockNextHeads(batchSize);
+            if (heads.isEmpty()) {
+                return 0;
+            }
+            Set<String> claimed = heads.stream().map(OutboxRelay::aggregateKey).collect(Collectors.toSet());
+            List<OutboxEvent> batch = outboxEventRepository.findAllByAggregateIdIn(
+                            heads.stream().map(OutboxEvent::getAggregateId).collect(Collectors.toSet())).stream()
+                    .filter(event -> claimed.contains(aggregateKey(event)))
+                    .toList();
+            try {
+                sink.publish(batch);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            outboxEventRepository.deleteAllInBatch(batch);
+            relayedCounter.increment(batch.size());
+            return batch.size();
+        });
+        return sent == null ? 0 : sent;
+    }
+
+    private static String aggregateKey(OutboxEvent event) {
+        return event.getAggregateType() + ":" + event.getAggregateId();
+    }
+
+    private void updateLagMetrics() {
+        try {
+            int shard = ShardContext.current();
+            pendingByShard.put(shard, outboxEventRepository.count());
+            LocalDateTime oldest = outboxEventRepository.findOldestCreated();
+            lagMillisByShard.put(shard, oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis());
+        } catch (Exception e) {
+            log.debug("Не удалось обновить метрики outbox: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.outbox.sink;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "shareit.outbox.sink", havingValue = "log", matchIfMissing = true)
+@Slf4j
+public class LoggingOutboxSink implements OutboxSink {
+
+    @Override
+    public void publish(List<OutboxEvent> batch) {
+        batch.forEach(event -> log.info("Outbox #{}: {} {} ID {} {}",
+                event.getId(), event.getAggregateType(), event.getEventType(),
+                event.getAggregateId(), event.getPayload()));
+    }
+}
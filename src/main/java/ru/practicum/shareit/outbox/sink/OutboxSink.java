@@ -0,0 +1,11 @@
+package ru.practicum.shareit.outbox.sink;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxSink {
+
+    // пакет передается целиком и по порядку; исключение откатывает пакет для повторной отправки
+    void publish(List<OutboxEvent> batch) throws Exception;
+}
@@ -0,0 +1,168 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты запросов каждого пользователя (X-Sharer-User-Id) по маршрутам:
+ * у каждой пары пользователь-маршрут своя корзина токенов с бюджетом маршрута.
+ * Превышение - 429 с Retry-After; запросы без заголовка пользователя не ограничиваются,
+ * а нечисловой заголовок отклоняется с 400 до создания корзины. Когда все корзины заняты
+ * активными пользователями, новые ключи делят одну общую корзину маршрута: заголовок не проверяется,
+ * поэтому перебор id может занять таблицу, но не отказать в обслуживании всем и не снять ограничение.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final String DEFAULT_ROUTE = "default";
+    // при переполнении полные корзины вычищаются не чаще раза в интервал, а не полным проходом на каждый запрос
+    private static final long OVERFLOW_EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final List<CompiledRoute> routes = new ArrayList<>();
+    private final RateLimitProperties.Budget defaultBudget;
+    private final int maxKeys;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // общие корзины для ключей, не поместившихся в таблицу, - по одной на имя маршрута
+    private final Map<String, TokenBucket> overflowBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastOverflowEviction = new AtomicLong(System.nanoTime() - OVERFLOW_EVICTION_INTERVAL_NANOS);
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            routes.add(new CompiledRoute(route, PathPatternParser.defaultInstance.parse(route.getPattern())));
+        }
+        this.defaultBudget = properties.getDefaultBudget();
+        this.maxKeys = properties.getMaxKeys();
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(USER_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long userId = parseUserId(request.getHeader(USER_HEADER));
+        if (userId == null) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Ошибка валидации",
+                    "Заголовок " + USER_HEADER + " должен быть положительным числом");
+            return;
+        }
+        CompiledRoute route = resolve(request);
+        String name = route == null ? DEFAULT_ROUTE : route.config().getName();
+        String key = userId + ":" + name;
+
+        TokenBucket bucket = bucket(key, name, route);
+        long waitNanos = bucket.tryAcquire(System.nanoTime());
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Превышен лимит запросов {} для ключа {}, повтор через {} с", name, key, retryAfter);
+        meterRegistry.counter("shareit.ratelimit.rejected", "route", name).increment();
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        writeError(response, HttpStatus.TOO_MANY_REQUESTS, "Слишком много запросов",
+                "Повторите запрос через " + retryAfter + " с");
+    }
+
+    // выбрасывает полные корзины: они не хранят никакого долга пользователя
+    @Scheduled(fixedDelayString = "${shareit.rate-limit.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private TokenBucket bucket(String key, String name, CompiledRoute route) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evictOnOverflow();
+            if (buckets.size() >= maxKeys) {
+                // все корзины заняты активными пользователями: новый ключ делит общую корзину маршрута
+                log.debug("Все {} корзин ограничения частоты заняты, ключ {} учитывается в общей корзине", maxKeys, key);
+                meterRegistry.counter("shareit.ratelimit.overflow", "route", name).increment();
+                return overflowBuckets.computeIfAbsent(name, n -> newBucket(route));
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> newBucket(route));
+    }
+
+    private TokenBucket newBucket(CompiledRoute route) {
+        int capacity = route == null ? defaultBudget.getCapacity() : route.config().getCapacity();
+        double refill = route == null ? defaultBudget.getRefillPerSecond() : route.config().getRefillPerSecond();
+        return new TokenBucket(capacity, refill);
+    }
+
+    private void evictOnOverflow() {
+        long now = System.nanoTime();
+        long last = lastOverflowEviction.get();
+        if (now - last >= OVERFLOW_EVICTION_INTERVAL_NANOS && lastOverflowEviction.compareAndSet(last, now)) {
+            evictIdle();
+        }
+    }
+
+    // "01" и "1" - один пользователь и одна корзина
+    private static Long parseUserId(String header) {
+        try {
+            long userId = Long.parseLong(header.trim());
+            return userId > 0 ? userId : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String error, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", error, "message", message));
+    }
+
+    private CompiledRoute resolve(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (CompiledRoute route : routes) {
+            String method = route.config().getMethod();
+            if ((method == null || method.isBlank() || method.equalsIgnoreCase(request.getMethod()))
+                    && route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private record CompiledRoute(RateLimitProperties.Route config, PathPattern pattern) {
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // предел числа корзин в памяти; полные корзины не отличаются от новых и вытесняются первыми
+    private int maxKeys = 100_000;
+
+    // бюджет адресов, не попавших ни в один маршрут
+    private Budget defaultBudget = new Budget();
+
+    // проверяются по порядку, срабатывает первый подходящий
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Budget {
+        // запас запросов подряд
+        private int capacity = 100;
+        // скорость пополнения, запросов в секунду
+        private double refillPerSecond = 20;
+    }
+
+    @Data
+    public static class Route {
+        private String name;
+        // шаблон пути в синтаксисе PathPattern, например /items/search или /bookings/**
+        private String pattern;
+        // пусто - любой метод
+        private String method;
+        private int capacity;
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов без блокировок. Состояние - одно число: момент (в наносекундах), когда корзина
+ * снова станет полной (алгоритм GCRA). Каждый запрос сдвигает этот момент на интервал одного токена;
+ * если он ушел дальше, чем на емкость корзины, запрос отклоняется. Обновление - один CAS.
+ */
+final class TokenBucket {
+
+    private final long tokenIntervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(int capacity, double refillPerSecond) {
+        this.tokenIntervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = tokenIntervalNanos * capacity;
+    }
+
+    // 0 - запрос разрешен, иначе через сколько наносекунд появится токен
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long base = Math.max(current, now);
+            long next = base + tokenIntervalNanos;
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // полная корзина ведет себя как новая, ее можно выбросить без изменения лимитов
+    boolean isFull(long now) {
+        return fullAt.get() <= now;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.request.controller;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/requests")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+public class ItemRequestController {
+
+    private final ItemRequestService itemRequestService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public ItemRequestDto createRequest(
+            @Valid @RequestBody CreateItemRequestDto requestDto,
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        log.info("POST /requests - создание запроса пользователем ID: {}", userId);
+        return itemRequestService.createRequest(requestDto, userId);
+    }
+
+    @GetMapping
+    public List<ItemRequestDto> getOwnRequests(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        log.info("GET /requests - получение собственных запросов пользователя ID: {}", userId);
+        return itemRequestService.getOwnRequests(userId);
+    }
+
+    @GetMapping("/all")
+    public List<ItemRequestDto> getOtherRequests(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) @Positive Long beforeId,
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer size) {
+        log.info("GET /requests/all?before={}&beforeId={} - получение чужих запросов пользователем ID: {}",
+                before, beforeId, userId);
+        return itemRequestService.getOtherRequests(userId, before, beforeId, size);
+    }
+
+    @GetMapping("/{requestId}")
+    public ItemRequestDto getRequestById(
+            @PathVariable @Positive Long requestId,
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        log.info("GET /requests/{} - получение запроса пользователем ID: {}", requestId, userId);
+        return itemRequestService.getRequestById(requestId, userId);
+    }
+}
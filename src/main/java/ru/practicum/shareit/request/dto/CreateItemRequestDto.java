@@ -0,0 +1,19 @@
+package ru.practicum.shareit.request.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateItemRequestDto {
+
+    @NotBlank(message = "Описание не может быть пустым")
+    @Size(max = 512, message = "Описание не может быть длиннее 512 символов")
+    private String description;
+}
@@ -5,9 +5,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -20,9 +20,19 @@ public class ItemRequestDto {
     @NotBlank(message = "Описание не может быть пустым")
     private String description;
 
-    private User requestor;
+    private Long requestorId;
 
-    @NotBlank(message = "Дата создания не может быть пустой")
     private LocalDateTime created;
 
-}
\ No newline at end of file
+    private List<ItemDto> items;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemDto {
+        private Long id;
+        private String name;
+        private Long ownerId;
+    }
+}
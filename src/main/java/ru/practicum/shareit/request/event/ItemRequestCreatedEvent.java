@@ -0,0 +1,15 @@
+package ru.practicum.shareit.request.event;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class ItemRequestCreatedEvent {
+    Long requestId;
+    Long requestorId;
+    String description;
+    LocalDateTime created;
+}
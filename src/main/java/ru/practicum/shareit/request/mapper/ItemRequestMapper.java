@@ -0,0 +1,54 @@
+package ru.practicum.shareit.request.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@UtilityClass
+public class ItemRequestMapper {
+
+    public static ItemRequestDto toItemRequestDto(ItemRequest request, List<Item> items) {
+        if (request == null) {
+            return null;
+        }
+
+        return ItemRequestDto.builder()
+                .id(request.getId())
+                .description(request.getDescription())
+                .requestorId(request.getRequestor().getId())
+                .created(request.getCreated())
+                .items(items.stream()
+                        .map(ItemRequestMapper::toItemDto)
+                        .toList())
+                .build();
+    }
+
+    public static ItemRequestDto.ItemDto toItemDto(Item item) {
+        return ItemRequestDto.ItemDto.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .ownerId(item.getOwner().getId())
+                .build();
+    }
+
+    public static ItemRequest toItemRequest(CreateItemRequestDto createDto, User requestor) {
+        if (createDto == null) {
+            return null;
+        }
+
+        return ItemRequest.builder()
+                .description(createDto.getDescription())
+                .requestor(requestor)
+                // created - часть ключа страницы: точность как у колонки TIMESTAMP, иначе курсор из
+                // контекста персистентности не совпадет с сохраненным значением
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+    }
+}
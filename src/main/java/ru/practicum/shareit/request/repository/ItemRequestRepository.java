@@ -0,0 +1,34 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+
+    List<ItemRequest> findAllByRequestorIdOrderByCreatedDescIdDesc(Long requestorId);
+
+    // первая страница чужих запросов
+    @Query("SELECT r FROM ItemRequest r " +
+            "WHERE r.requestor.id <> :userId " +
+            "ORDER BY r.created DESC, r.id DESC")
+    List<ItemRequest> findOthersFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    // следующая страница чужих запросов по ключу (created, id) последнего элемента
+    @Query("SELECT r FROM ItemRequest r " +
+            "WHERE r.requestor.id <> :userId " +
+            "AND (r.created < :created OR (r.created = :created AND r.id < :id)) " +
+            "ORDER BY r.created DESC, r.id DESC")
+    List<ItemRequest> findOthersPageBefore(
+            @Param("userId") Long userId,
+            @Param("created") LocalDateTime created,
+            @Param("id") Long id,
+            Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.request.service;
+
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ItemRequestService {
+
+    ItemRequestDto createRequest(CreateItemRequestDto requestDto, Long requestorId);
+
+    List<ItemRequestDto> getOwnRequests(Long requestorId);
+
+    List<ItemRequestDto> getOtherRequests(Long userId, LocalDateTime before, Long beforeId, Integer size);
+
+    ItemRequestDto getRequestById(Long requestId, Long userId);
+}
@@ -0,0 +1,131 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.event.ItemRequestCreatedEvent;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class ItemRequestServiceImpl implements ItemRequestService {
+
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+
+    @Override
+    @Transactional
+    public ItemRequestDto createRequest(CreateItemRequestDto requestDto, Long requestorId) {
+        log.info("Создание запроса вещи пользователем с ID: {}", requestorId);
+
+        User requestor = findUserById(requestorId);
+
+        ItemRequest request = ItemRequestMapper.toItemRequest(requestDto, requestor);
+        ItemRequest savedRequest = itemRequestRepository.save(request);
+        eventPublisher.publishEvent(ItemRequestCreatedEvent.builder()
+                .requestId(savedRequest.getId())
+                .requestorId(requestorId)
+                .description(savedRequest.getDescription())
+                .created(savedRequest.getCreated())
+                .build());
+
+        log.info("Запрос создан с ID: {}", savedRequest.getId());
+        return ItemRequestMapper.toItemRequestDto(savedRequest, List.of());
+    }
+
+    @Override
+    public List<ItemRequestDto> getOwnRequests(Long requestorId) {
+        log.info("Получение собственных запросов пользователя с ID: {}", requestorId);
+
+        checkUserExists(requestorId);
+
+        List<ItemRequest> requests = itemRequestRepository.findAllByRequestorIdOrderByCreatedDescIdDesc(requestorId);
+
+        return toDtosWithItems(requests);
+    }
+
+    @Override
+    public List<ItemRequestDto> getOtherRequests(Long userId, LocalDateTime before, Long beforeId, Integer size) {
+        log.info("Получение чужих запросов для пользователя с ID: {}, курсор: {}/{}", userId, before, beforeId);
+
+        checkUserExists(userId);
+
+        PageRequest page = PageRequest.of(0, size);
+
+        List<ItemRequest> requests = before == null
+                ? itemRequestRepository.findOthersFirstPage(userId, page)
+                : itemRequestRepository.findOthersPageBefore(userId, before,
+                        beforeId != null ? beforeId : Long.MAX_VALUE, page);
+
+        return toDtosWithItems(requests);
+    }
+
+    @Override
+    public ItemRequestDto getRequestById(Long requestId, Long userId) {
+        log.info("Получение запроса с ID: {} пользователем с ID: {}", requestId, userId);
+
+        checkUserExists(userId);
+
+        ItemRequest request = itemRequestRepository.findById(requestId)
+                .orElseThrow(() -> new NoSuchElementException("Запрос с ID " + requestId + " не найден"));
+
+        return toDtosWithItems(List.of(request)).get(0);
+    }
+
+    // ответы на все запросы страницы подтягиваются одним запросом к каждому шарду:
+    // запросы лежат на шарде 0, а вещи-ответы - на шардах своих владельцев
+    private List<ItemRequestDto> toDtosWithItems(List<ItemRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> requestIds = requests.stream()
+                .map(ItemRequest::getId)
+                .toList();
+
+        Map<Long, List<Item>> itemsByRequestId = shardRouter.scatterGather(
+                        shard -> itemRepository.findAllByRequestIdInOrderById(requestIds),
+                        Comparator.comparing(Item::getId)).stream()
+                .collect(Collectors.groupingBy(item -> item.getRequest().getId()));
+
+        return requests.stream()
+                .map(request -> ItemRequestMapper.toItemRequestDto(
+                        request,
+                        itemsByRequestId.getOrDefault(request.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private void checkUserExists(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NoSuchElementException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+
+    private User findUserById(Long userId) {
+        return userRepository.findById(userId).orElseThrow(() -> new NoSuchElementException("Пользователь с ID " + userId + " не найден"));
+    }
+}
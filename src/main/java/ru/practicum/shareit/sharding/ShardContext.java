@@ -0,0 +1,31 @@
+package ru.practicum.shareit.sharding;
+
+import lombok.experimental.UtilityClass;
+
+// шард текущего потока; читается маршрутизирующим источником данных при получении соединения
+@UtilityClass
+public class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public static Integer peek() {
+        return CURRENT.get();
+    }
+
+    public static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.shareit.sharding;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Вещи, их бронирования и комментарии живут на шарде владельца вещи.
+ * Идентификаторы на шарде k выдаются с шагом N и остатком k, поэтому шард любой строки
+ * определяется по ее id без справочника. При одном шарде (по умолчанию) маршрутизация ничего не меняет.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+
+    private final int shardCount;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate newTransaction;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardRouter(@Value("${shareit.sharding.shard-count:1}") int shardCount,
+                       PlatformTransactionManager transactionManager) {
+        if (shardCount < 1) {
+            throw new IllegalStateException("Число шардов должно быть положительным: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public List<Integer> allShards() {
+        return IntStream.range(0, shardCount).boxed().toList();
+    }
+
+    public int shardOf(Long id) {
+        return (int) Math.floorMod(id, (long) shardCount);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = ShardContext.peek();
+        ShardContext.set(shard);
+        try {
+            return action.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    // фоновые задачи: действие выполняется на каждом шарде по очереди, в контексте этого шарда
+    public void forEachShard(IntConsumer action) {
+        for (int shard : allShards()) {
+            onShard(shard, () -> {
+                action.accept(shard);
+                return null;
+            });
+        }
+    }
+
+    // чтение с одного шарда в собственной транзакции: соединение берется уже для нужного шарда
+    public <T> T readOnShard(int shard, Supplier<T> query) {
+        return onShard(shard, () -> readOnlyTransaction.execute(status -> query.get()));
+    }
+
+    // запись на шарде, отличном от шарда текущей транзакции: у нее свое соединение и своя фиксация
+    public <T> T writeOnShard(int shard, Supplier<T> action) {
+        return onShard(shard, () -> newTransaction.execute(status -> action.get()));
+    }
+
+    // сумма счетчика по всем шардам, например число зависимых строк перед удалением
+    public long sum(Supplier<Long> count) {
+        return scatterGather(shard -> List.of(count.get()), Comparator.<Long>naturalOrder()).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Выполняет запрос на каждом шарде параллельно, каждый в своей транзакции только для чтения,
+     * и сливает уже упорядоченные ответы шардов в один список в порядке order.
+     */
+    public <T> List<T> scatterGather(Function<Integer, List<T>> query, Comparator<? super T> order) {
+        if (shardCount == 1) {
+            return query.apply(0);
+        }
+
+        List<CompletableFuture<List<T>>> futures = IntStream.range(0, shardCount)
+                .mapToObj(shard -> CompletableFuture.supplyAsync(() -> onShard(shard,
+                        () -> readOnlyTransaction.execute(status -> query.apply(shard))), executor))
+                .toList();
+
+        List<List<T>> parts = futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+        return merge(parts, order);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // k-путевое слияние: каждый ответ шарда уже отсортирован
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.head(), b.head()));
+        int total = 0;
+        for (List<T> part : parts) {
+            total += part.size();
+            if (!part.isEmpty()) {
+                heads.add(new Cursor<>(part));
+            }
+        }
+
+        List<T> result = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Cursor<T> cursor = heads.poll();
+            result.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> items;
+        private int position;
+
+        private Cursor(List<T> items) {
+            this.items = items;
+        }
+
+        T head() {
+            return items.get(position);
+        }
+
+        boolean advance() {
+            return ++position < items.size();
+        }
+    }
+}
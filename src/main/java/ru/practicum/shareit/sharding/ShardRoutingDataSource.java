@@ -0,0 +1,12 @@
+package ru.practicum.shareit.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+// выбор пула по шарду потока; оборачивается в LazyConnectionDataSourceProxy, как и маршрутизация на реплику
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Выбирает шард запроса до начала транзакций:
+ * по id вещи или бронирования из пути, иначе по пользователю из X-Sharer-User-Id как по владельцу.
+ * Пользователи и запросы вещей - общие справочники, их изменения идут в шард 0.
+ * Ответы на запросы вещей и поля GraphQL сервисы собирают со всех шардов сами.
+ */
+@RequiredArgsConstructor
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+
+    private final ShardRouter shardRouter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ShardContext.set(resolveShard(request));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ShardContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ShardContext.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int resolveShard(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/users") || path.startsWith("/requests") || path.startsWith("/graphql")) {
+            return 0;
+        }
+
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null) {
+            Long id = parse(variables.getOrDefault("itemId", variables.get("bookingId")));
+            if (id != null) {
+                return shardRouter.shardOf(id);
+            }
+        }
+
+        Long userId = parse(request.getHeader(USER_HEADER));
+        return userId == null ? 0 : shardRouter.shardOf(userId);
+    }
+
+    private static Long parse(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
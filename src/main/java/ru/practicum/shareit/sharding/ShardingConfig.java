@@ -0,0 +1,121 @@
+package ru.practicum.shareit.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Включается при shareit.sharding.shard-count > 1. Схема на каждом шарде создается заранее;
+ * таблицы users и requests - общие справочники, реплицируемые с шарда 0 средствами базы.
+ */
+@Configuration
+@ConditionalOnExpression("${shareit.sharding.shard-count:1} > 1")
+@EnableConfigurationProperties(ShardingProperties.class)
+@Slf4j
+public class ShardingConfig implements WebMvcConfigurer, SmartInitializingSingleton {
+
+    // таблицы, чьи id несут номер шарда
+    private static final List<String> SHARDED_TABLES = List.of("items", "bookings", "comments");
+
+    private final ShardingProperties properties;
+    // роутер зависит от менеджера транзакций, а тот - от источника данных из этой конфигурации
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final Map<Object, Object> shardDataSources = new HashMap<>();
+
+    public ShardingConfig(ShardingProperties properties, ObjectProvider<ShardRouter> shardRouter) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primary) {
+        if (properties.getShards().size() != properties.getShardCount() - 1) {
+            throw new IllegalStateException("Для " + properties.getShardCount() + " шардов нужно "
+                    + (properties.getShardCount() - 1) + " адресов в shareit.sharding.shards");
+        }
+
+        HikariDataSource first = primary.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        first.setPoolName("shard-0");
+        first.setMaximumPoolSize(properties.getMaximumPoolSize());
+        shardDataSources.put(0, first);
+
+        for (int shard = 1; shard < properties.getShardCount(); shard++) {
+            ShardingProperties.Shard config = properties.getShards().get(shard - 1);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setDriverClassName(primary.determineDriverClassName());
+            dataSource.setJdbcUrl(config.getUrl());
+            dataSource.setUsername(config.getUsername() != null ? config.getUsername() : primary.determineUsername());
+            dataSource.setPassword(config.getPassword() != null ? config.getPassword() : primary.determinePassword());
+            dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+            shardDataSources.put(shard, dataSource);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shardDataSources);
+        routing.setDefaultTargetDataSource(first);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ShardRoutingInterceptor(shardRouter.getObject()));
+    }
+
+    // id на шарде k: k, k + N, k + 2N...; для шарда 0 - N, 2N...
+    // Выполняется после создания всех бинов (схема уже есть), но до запуска веб-сервера, то есть до первой вставки.
+    // Непустая таблица допускается, только если все ее id уже принадлежат шарду: тогда счетчик продолжается
+    // со следующего id шарда, иначе приложение не стартует
+    @Override
+    public void afterSingletonsInstantiated() {
+        int shardCount = properties.getShardCount();
+        shardDataSources.forEach((key, dataSource) -> {
+            int shard = (Integer) key;
+            JdbcTemplate jdbc = new JdbcTemplate((DataSource) dataSource);
+            for (String table : SHARDED_TABLES) {
+                interleave(jdbc, table, shard, shardCount);
+            }
+            log.info("Шард {}: идентификаторы {} выдаются с шагом {}", shard, SHARDED_TABLES, shardCount);
+        });
+    }
+
+    private static void interleave(JdbcTemplate jdbc, String table, int shard, int shardCount) {
+        Long foreign = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE MOD(id, " + shardCount + ") <> " + shard, Long.class);
+        if (foreign != null && foreign > 0) {
+            throw new IllegalStateException("Шард " + shard + ": в таблице " + table + " " + foreign
+                    + " строк с id других шардов, перед включением шардирования данные нужно перенести");
+        }
+
+        String increment = jdbc.queryForObject("SELECT identity_increment FROM information_schema.columns " +
+                "WHERE table_schema = current_schema AND LOWER(table_name) = ? AND LOWER(column_name) = 'id'",
+                String.class, table);
+        if (increment != null && Long.parseLong(increment.trim()) == shardCount) {
+            return;
+        }
+
+        Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        long next = (maxId == null ? 0 : maxId) + 1;
+        long start = next + Math.floorMod(shard - next, (long) shardCount);
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id SET INCREMENT BY " + shardCount);
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + start);
+    }
+}
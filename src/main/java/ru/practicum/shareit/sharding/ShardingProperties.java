@@ -0,0 +1,26 @@
+package ru.practicum.shareit.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.sharding")
+public class ShardingProperties {
+
+    private int shardCount = 1;
+
+    private int maximumPoolSize = 10;
+
+    // адреса шардов по порядку номеров; шард 0 - основная база из spring.datasource
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
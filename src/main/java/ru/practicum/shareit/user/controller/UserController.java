@@ -1,12 +1,23 @@
 package ru.practicum.shareit.user.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.common.ExportFormat;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserExportService;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.util.List;
@@ -20,6 +31,7 @@ import java.util.Map;
 public class UserController {
 
     private final UserService userService;
+    private final UserExportService userExportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -42,10 +54,35 @@ public class UserController {
         return userService.getUserById(userId);
     }
 
+    // постраничный список: следующая страница запрашивается с afterId = id последнего пользователя
     @GetMapping
-    public List<UserDto> getAllUsers() {
-        log.info("GET /users - получение всех пользователей");
-        return userService.getAllUsers();
+    public List<UserDto> getUsers(
+            @RequestParam(required = false) @PositiveOrZero Long afterId,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(defaultValue = "100") @Positive @Max(1000) Integer size) {
+        log.info("GET /users?afterId={}&name={}&email={} - получение пользователей", afterId, name, email);
+        return userService.getUsers(afterId, name, email, size);
+    }
+
+    // пакетный поиск для обогащения списков: GET /users?ids=1,2,3, порядок - как в запросе, ненайденные пропускаются
+    @GetMapping(params = "ids")
+    public List<UserDto> getUsersByIds(@RequestParam @NotEmpty @Size(max = 1000) List<@Positive Long> ids) {
+        log.info("GET /users?ids - получение {} пользователей по ID", ids.size());
+        return userService.getUsersByIds(ids);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "NDJSON") String format) {
+        log.info("GET /users/export?format={} - выгрузка пользователей", format);
+        ExportFormat exportFormat = ExportFormat.from(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(exportFormat.fileName("users"))
+                        .build()
+                        .toString())
+                .body(out -> userExportService.exportUsers(exportFormat, out));
     }
 
     @DeleteMapping("/{userId}")
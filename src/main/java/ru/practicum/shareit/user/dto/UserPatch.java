@@ -0,0 +1,42 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import ru.practicum.shareit.user.service.EmailRegistry;
+
+import java.util.Map;
+
+// частичное обновление пользователя: null - поле не меняется, адрес приводится к нижнему регистру
+@Value
+@Builder
+public class UserPatch {
+    String name;
+    String email;
+
+    public static UserPatch from(Map<String, Object> updates) {
+        UserPatchBuilder patch = UserPatch.builder();
+        if (updates == null) {
+            return patch.build();
+        }
+
+        updates.forEach((key, value) -> {
+            switch (key) {
+                case "name":
+                    if (value != null && !value.toString().isBlank()) {
+                        patch.name(value.toString());
+                    }
+                    break;
+                case "email":
+                    if (value != null && !value.toString().isBlank()) {
+                        patch.email(EmailRegistry.normalize(value.toString()));
+                    }
+                    break;
+            }
+        });
+        return patch.build();
+    }
+
+    public boolean isNameOnly() {
+        return name != null && email == null;
+    }
+}
@@ -1,9 +1,9 @@
 package ru.practicum.shareit.user.mapper;
 
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserPatch;
 import ru.practicum.shareit.user.model.User;
-
-import java.util.Map;
+import ru.practicum.shareit.user.service.EmailRegistry;
 
 public class UserMapper {
 
@@ -27,30 +27,17 @@ public class UserMapper {
         return User.builder()
                 .id(userDto.getId())
                 .name(userDto.getName())
-                .email(userDto.getEmail())
+                .email(EmailRegistry.normalize(userDto.getEmail()))
                 .build();
     }
 
-    public static User updateFromMap(User user, Map<String, Object> updates) {
-        if (updates == null || updates.isEmpty()) {
-            return user;
+    public static User applyPatch(User user, UserPatch patch) {
+        if (patch.getName() != null) {
+            user.setName(patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            user.setEmail(patch.getEmail());
         }
-
-        updates.forEach((key, value) -> {
-            switch (key) {
-                case "name":
-                    if (value != null && !value.toString().isBlank()) {
-                        user.setName(value.toString());
-                    }
-                    break;
-                case "email":
-                    if (value != null && !value.toString().isBlank()) {
-                        user.setEmail(value.toString());
-                    }
-                    break;
-            }
-        });
-
         return user;
     }
 }
\ No newline at end of file
@@ -5,13 +5,23 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+// в UPDATE попадают только измененные столбцы
+@DynamicUpdate
+// помеченные на удаление строки не видны ни одному запросу, их дочищает TombstonePurger
+@SQLRestriction("deleted_at IS NULL")
 @Entity
-@Table(name = "users", schema = "public")
+@Table(name = "users", schema = "public",
+        uniqueConstraints = @UniqueConstraint(name = "uq_users_email", columnNames = "email"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,6 +30,18 @@ public class User {
     @Column(name = "name", nullable = false)
     private String name;
 
-    @Column(name = "email", nullable = false, unique = true, length = 360)
+    @Column(name = "email", nullable = false, length = 360)
     private String email;
-}
\ No newline at end of file
+
+    // версия строки: оптимистичная блокировка и основа ETag
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @UpdateTimestamp
+    @Column(name = "updated", nullable = false)
+    private LocalDateTime updated;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+}
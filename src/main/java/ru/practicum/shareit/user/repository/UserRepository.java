@@ -1,12 +1,56 @@
 package ru.practicum.shareit.user.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.user.model.User;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmail(String email);
 
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.name = :name, u.version = u.version + 1, u.updated = LOCAL DATETIME " +
+            "WHERE u.id = :userId")
+    int updateName(@Param("userId") Long userId, @Param("name") String name);
+
+    // адрес заменяется заглушкой, чтобы освободить уникальный email до фоновой очистки
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.deletedAt = :now, u.version = u.version + 1, " +
+            "u.email = CONCAT('deleted.', CAST(u.id AS String), '@tombstone.invalid') " +
+            "WHERE u.id = :userId AND u.deletedAt IS NULL")
+    int markDeleted(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT u.email FROM User u")
+    List<String> findAllEmails();
+
+    // страница после afterId по возрастанию id; префиксы уже экранированы и заканчиваются на '%'
+    @Query("SELECT u FROM User u " +
+            "WHERE u.id > :afterId " +
+            "AND LOWER(u.name) LIKE :namePattern ESCAPE '\\' " +
+            "AND u.email LIKE :emailPattern ESCAPE '\\' " +
+            "ORDER BY u.id")
+    List<User> findPage(
+            @Param("afterId") Long afterId,
+            @Param("namePattern") String namePattern,
+            @Param("emailPattern") String emailPattern,
+            Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
+
 }
\ No newline at end of file
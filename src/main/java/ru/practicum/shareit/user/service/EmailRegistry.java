@@ -0,0 +1,111 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Занятые адреса электронной почты в памяти процесса.
+ * Адрес резервируется атомарным добавлением в множество: из двух параллельных регистраций
+ * с одним адресом вторая получает отказ сразу, без обращения к базе. Резерв снимается,
+ * если транзакция откатилась.
+ * Подходит только для развертывания в один экземпляр: адреса, занятые и освобожденные другими
+ * экземплярами, сюда не попадают, и освобожденный там адрес здесь был бы отвергнут. Поэтому реестр
+ * по умолчанию выключен, и проверка идет в базу, а гонку между экземплярами ловит индекс по lower(email).
+ */
+@Service
+@Slf4j
+public class EmailRegistry {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+    // до прогрева множество неполное, поэтому проверка идет в базу
+    private volatile boolean ready;
+
+    public EmailRegistry(UserRepository userRepository,
+                         @Value("${shareit.users.email-registry.enabled:false}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        userRepository.findAllEmails().forEach(email -> emails.add(normalize(email)));
+        ready = true;
+        log.info("Реестр адресов электронной почты прогрет: {} адресов", emails.size());
+    }
+
+    // вызывается внутри транзакции, которая сохраняет пользователя с этим адресом
+    public void reserve(String email) {
+        String normalized = normalize(email);
+
+        if (!ready) {
+            if (userRepository.existsByEmail(normalized)) {
+                throw alreadyUsed(normalized);
+            }
+            if (!enabled) {
+                return;
+            }
+        }
+
+        if (!emails.add(normalized)) {
+            throw alreadyUsed(normalized);
+        }
+        afterCompletion(committed -> {
+            if (!committed) {
+                emails.remove(normalized);
+            }
+        });
+    }
+
+    // адрес освобождается только после фиксации: до нее строка в базе еще существует
+    public void release(String email) {
+        if (!enabled) {
+            return;
+        }
+        String normalized = normalize(email);
+        afterCompletion(committed -> {
+            if (committed) {
+                emails.remove(normalized);
+            }
+        });
+    }
+
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static IllegalArgumentException alreadyUsed(String email) {
+        return new IllegalArgumentException("Email " + email + " уже используется другим пользователем");
+    }
+}
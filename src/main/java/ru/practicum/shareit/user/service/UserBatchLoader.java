@@ -0,0 +1,77 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Пакетная загрузка пользователей по id.
+ * Недостающие id запрашиваются одним IN-запросом, повторы схлопываются. В рамках HTTP-запроса
+ * загруженные пользователи (и отсутствующие id) запоминаются, и следующий вызов идет в базу только
+ * за новыми id; вне HTTP-запроса кэш живет один вызов.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserBatchLoader {
+
+    private static final String CACHE_ATTRIBUTE = UserBatchLoader.class.getName() + ".CACHE";
+
+    private final UserRepository userRepository;
+
+    // найденные пользователи в порядке первого появления id
+    public Map<Long, UserDto> loadAll(Collection<Long> userIds) {
+        Map<Long, Optional<UserDto>> cache = requestCache();
+
+        List<Long> missing = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(userId -> !cache.containsKey(userId))
+                .toList();
+        if (!missing.isEmpty()) {
+            userRepository.findAllById(missing)
+                    .forEach(user -> cache.put(user.getId(), Optional.of(UserMapper.toUserDto(user))));
+            missing.forEach(userId -> cache.putIfAbsent(userId, Optional.empty()));
+            log.debug("Загружено пользователей одним запросом: {}", missing.size());
+        }
+
+        Map<Long, UserDto> result = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            if (userId != null) {
+                cache.getOrDefault(userId, Optional.empty()).ifPresent(user -> result.put(userId, user));
+            }
+        }
+        return result;
+    }
+
+    public Optional<UserDto> load(Long userId) {
+        return Optional.ofNullable(loadAll(List.of(userId)).get(userId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, Optional<UserDto>> requestCache() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new ConcurrentHashMap<>();
+        }
+        Object cache = attributes.getAttribute(CACHE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cache == null) {
+            cache = new ConcurrentHashMap<Long, Optional<UserDto>>();
+            attributes.setAttribute(CACHE_ATTRIBUTE, cache, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<Long, Optional<UserDto>>) cache;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.shareit.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.common.ExportFormat;
+import ru.practicum.shareit.common.ExportWriter;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковая выгрузка всех пользователей: курсор по id, запись порциями,
+ * очистка контекста персистентности после каждой порции.
+ */
+@Service
+@Slf4j
+public class UserExportService {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExportWriter<UserDto> exportWriter;
+
+    public UserExportService(UserRepository userRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${shareit.users.export.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportWriter = new ExportWriter<>(objectMapper, UserDto.class,
+                List.of("id", "name", "email"),
+                user -> Arrays.asList(String.valueOf(user.getId()), user.getName(), user.getEmail()),
+                chunkSize, entityManager::clear);
+    }
+
+    public void exportUsers(ExportFormat format, OutputStream out) {
+        log.info("Выгрузка пользователей в формате {}", format);
+        ExportWriter.Output<UserDto> output = exportWriter.open(format, out);
+        readOnlyTransaction.executeWithoutResult(status ->
+                output.writeAll(userRepository.streamAll(), UserMapper::toUserDto));
+        log.info("Выгружено пользователей: {}", output.finish());
+    }
+}
@@ -12,7 +12,9 @@ public interface UserService {
 
     UserDto getUserById(Long userId);
 
-    List<UserDto> getAllUsers();
+    List<UserDto> getUsers(Long afterId, String namePrefix, String emailPrefix, Integer size);
+
+    List<UserDto> getUsersByIds(List<Long> userIds);
 
     void deleteUser(Long userId);
 }
\ No newline at end of file
@@ -2,14 +2,25 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.common.TombstonePurger;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserPatch;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
@@ -21,13 +32,20 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final EmailRegistry emailRegistry;
+    private final UserBatchLoader userBatchLoader;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final TombstonePurger tombstonePurger;
+    private final ShardRouter shardRouter;
 
     @Override
     @Transactional
     public UserDto createUser(UserDto userDto) {
         log.info("Создание нового пользователя: {}", userDto.getEmail());
 
-        verificationUserMail(userDto.getEmail().toLowerCase());
+        emailRegistry.reserve(userDto.getEmail());
 
         User user = UserMapper.toUser(userDto);
         User savedUser = userRepository.save(user);
@@ -41,19 +59,25 @@ public class UserServiceImpl implements UserService {
     public UserDto updateUser(Long userId, Map<String, Object> updates) {
         log.info("Обновление пользователя с ID: {}", userId);
 
-        User existingUser = findUserById(userId);
-
-        if (updates.containsKey("email") && updates.get("email") != null) {
-            String newEmail = updates.get("email").toString().toLowerCase();
-            String oldEmail = existingUser.getEmail().toLowerCase();
+        UserPatch patch = UserPatch.from(updates);
 
-            if (!oldEmail.equals(newEmail)) {
-                verificationUserMail(newEmail);
+        if (patch.isNameOnly()) {
+            // одно поле без уникальных ограничений: UPDATE без загрузки пользователя
+            if (userRepository.updateName(userId, patch.getName()) == 0) {
+                throw new NoSuchElementException("Пользователь с ID " + userId + " не найден");
             }
+            log.info("Пользователь с ID {} обновлен", userId);
+            return UserMapper.toUserDto(findUserById(userId));
         }
 
-        User updatedUser = UserMapper.updateFromMap(existingUser, updates);
-        User savedUser = userRepository.save(updatedUser);
+        User existingUser = findUserById(userId);
+
+        if (patch.getEmail() != null && !patch.getEmail().equals(EmailRegistry.normalize(existingUser.getEmail()))) {
+            emailRegistry.reserve(patch.getEmail());
+            emailRegistry.release(existingUser.getEmail());
+        }
+
+        User savedUser = userRepository.save(UserMapper.applyPatch(existingUser, patch));
 
         log.info("Пользователь с ID {} обновлен", userId);
         return UserMapper.toUserDto(savedUser);
@@ -69,29 +93,65 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public List<UserDto> getAllUsers() {
-        log.info("Получение списка всех пользователей");
-
-        return userRepository.findAll().stream()
+    public List<UserDto> getUsers(Long afterId, String namePrefix, String emailPrefix, Integer size) {
+        log.info("Получение пользователей после ID: {}, имя: {}, email: {}", afterId, namePrefix, emailPrefix);
+
+        return userRepository.findPage(
+                        afterId == null ? 0L : afterId,
+                        prefixPattern(namePrefix),
+                        prefixPattern(EmailRegistry.normalize(emailPrefix)),
+                        PageRequest.of(0, size)).stream()
                 .map(UserMapper::toUserDto)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<UserDto> getUsersByIds(List<Long> userIds) {
+        log.info("Получение пользователей по списку ID, всего: {}", userIds.size());
+
+        return new ArrayList<>(userBatchLoader.loadAll(userIds).values());
+    }
+
     @Override
     @Transactional
     public void deleteUser(Long userId) {
         log.info("Удаление пользователя с ID: {}", userId);
 
-        findUserById(userId);
+        User user = findUserById(userId);
 
-        userRepository.deleteById(userId);
+        // пользователь и его вещи скрываются сразу; при большом числе бронирований и комментариев
+        // они удаляются фоновой очисткой порциями, а не одним каскадом.
+        // Пользователь живет на шарде 0, его вещи - на шарде владельца, бронирования и комментарии - на любых
+        long dependents = shardRouter.sum(() -> bookingRepository.countByBookerId(userId)
+                + bookingRepository.countByItemOwnerId(userId)
+                + commentRepository.countByAuthorId(userId)
+                + commentRepository.countByItemOwnerId(userId));
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.markDeleted(userId, now);
+        int itemShard = shardRouter.shardOf(userId);
+        if (itemShard == ShardContext.current()) {
+            itemRepository.markDeletedByOwnerId(userId, now);
+        } else {
+            // вещи скрываются до фиксации пользователя: при откате повторное удаление пометит их снова
+            shardRouter.writeOnShard(itemShard, () -> itemRepository.markDeletedByOwnerId(userId, now));
+        }
+        // каскад базы достает только строки своего шарда, поэтому при нескольких шардах удаляет фоновая очистка
+        if (tombstonePurger.isSmall(dependents) && shardRouter.getShardCount() == 1) {
+            tombstonePurger.deleteUserNow(userId);
+        }
+        emailRegistry.release(user.getEmail());
         log.info("Пользователь с ID {} удален", userId);
     }
 
-    private void verificationUserMail(String email) {
-        if (userRepository.existsByEmail(email)) {
-            throw new IllegalArgumentException("Email " + email + " уже используется другим пользователем");
+    // имена сравниваются без учета регистра, адреса и так хранятся в нижнем
+    private static String prefixPattern(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return "%";
         }
+        return prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
     }
 
     private User findUserById(Long userId) {
@@ -0,0 +1,26 @@
+-- Заполнение фазы у бронирований, созданных до появления колонки phase. Только PostgreSQL, выполняется вручную
+-- до запуска новой версии: ddl-auto=update не добавит NOT NULL колонку в непустую таблицу.
+-- Фаза считается так же, как BookingPhase.of: FINISHED при end < now, UPCOMING при start > now, иначе ACTIVE.
+-- Границы, пройденные между этим скриптом и запуском, догонит планировщик фаз: при старте он загружает
+-- просроченные переходы с нулевой задержкой.
+
+BEGIN;
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS phase VARCHAR(10);
+
+UPDATE bookings
+SET phase = CASE
+                WHEN end_date < now() THEN 'FINISHED'
+                WHEN start_date > now() THEN 'UPCOMING'
+                ELSE 'ACTIVE'
+            END
+WHERE phase IS NULL;
+
+ALTER TABLE bookings ALTER COLUMN phase SET NOT NULL;
+
+COMMIT;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_booker_phase ON bookings (booker_id, phase, start_date DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_item_phase ON bookings (item_id, phase);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_phase_start ON bookings (phase, start_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_phase_end ON bookings (phase, end_date);
@@ -0,0 +1,65 @@
+-- Перевод таблицы bookings в секционированную по start_date (помесячно). Только PostgreSQL, выполняется вручную
+-- в окне обслуживания: приложение на время миграции должно быть остановлено.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому он (id, start_date);
+-- id по-прежнему выдается identity и уникален. Новые секции дальше создает BookingPartitionManager.
+
+BEGIN;
+
+ALTER TABLE bookings RENAME TO bookings_legacy;
+
+CREATE TABLE bookings (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT NOT NULL,
+    status VARCHAR(10) NOT NULL,
+    phase VARCHAR(10) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT bookings_part_pkey PRIMARY KEY (id, start_date),
+    CONSTRAINT fk_bookings_part_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
+    CONSTRAINT fk_bookings_part_booker FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT check_part_dates CHECK (end_date > start_date)
+) PARTITION BY RANGE (start_date);
+
+-- строки вне созданных диапазонов не теряются, а попадают сюда
+CREATE TABLE bookings_default PARTITION OF bookings DEFAULT;
+
+-- по секции на каждый месяц от самого раннего бронирования до трех месяцев вперед
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT min(start_date) FROM bookings_legacy), now()))::date;
+    last_month DATE := (date_trunc('month', now()) + INTERVAL '3 months')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF bookings FOR VALUES FROM (%L) TO (%L)',
+                       'bookings_' || to_char(month_start, 'YYYY_MM'),
+                       month_start,
+                       (month_start + INTERVAL '1 month')::date);
+        month_start := (month_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status, phase, version, updated)
+OVERRIDING SYSTEM VALUE
+SELECT id, start_date, end_date, item_id, booker_id, status, phase, version, updated
+FROM bookings_legacy;
+
+SELECT setval(pg_get_serial_sequence('bookings', 'id'), COALESCE((SELECT max(id) FROM bookings), 0) + 1, false);
+
+DROP TABLE bookings_legacy;
+
+-- индексы на секционированной таблице создаются на каждой секции автоматически
+CREATE INDEX idx_bookings_item_id ON bookings(item_id);
+CREATE INDEX idx_bookings_booker_id ON bookings(booker_id);
+CREATE INDEX idx_bookings_status ON bookings(status);
+CREATE INDEX idx_bookings_booker_phase ON bookings(booker_id, phase, start_date DESC);
+CREATE INDEX idx_bookings_item_phase ON bookings(item_id, phase);
+CREATE INDEX idx_bookings_phase_start ON bookings(phase, start_date);
+CREATE INDEX idx_bookings_phase_end ON bookings(phase, end_date);
+CREATE INDEX idx_bookings_item_booker_status_end ON bookings(item_id, booker_id, status, end_date);
+
+COMMIT;
+
+ANALYZE bookings;
@@ -0,0 +1,14 @@
+-- Таблица для shareit.idempotency.store=jdbc (ключи общие для всех экземпляров). Выполняется вручную;
+-- просроченные строки удаляет само приложение раз в shareit.idempotency.cleanup-interval.
+-- expires_at: пока status пуст - конец аренды ключа (shareit.idempotency.lease), после ответа - конец ttl.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    status INTEGER,
+    content_type VARCHAR(255),
+    body TEXT,
+    expires_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,5 @@
+-- Версия строки статистики бронирований: растет с каждым приращением, пересчет записывает строку,
+-- только если версия не изменилась. Только PostgreSQL, выполняется вручную до запуска новой версии:
+-- ddl-auto=update не добавит NOT NULL колонку в непустую таблицу.
+
+ALTER TABLE item_booking_stats ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- Частичные индексы по вещам, доступным для аренды. Только PostgreSQL, выполняется вручную.
+-- Поиск (searchAvailableItems) и проверка доступности при бронировании читают только живые вещи,
+-- поэтому индексы строятся по этой части таблицы; снятие с аренды сразу убирает строку из индекса.
+-- Индекс по булеву столбцу целиком почти не избирателен и заменяется частичным.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_items_available_live ON items (id)
+    WHERE is_available AND deleted_at IS NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_items_available_name_trgm ON items USING gin (lower(name) gin_trgm_ops)
+    WHERE is_available AND deleted_at IS NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_items_available_description_trgm ON items USING gin (lower(description) gin_trgm_ops)
+    WHERE is_available AND deleted_at IS NULL;
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_items_available;
@@ -0,0 +1,14 @@
+-- Заполнение счетчика отзывов у вещей, созданных до появления колонки comment_count. Только PostgreSQL,
+-- выполняется вручную до запуска новой версии: ddl-auto=update не добавит NOT NULL колонку в непустую таблицу.
+-- Отзывы, добавленные старой версией между этим скриптом и переключением, можно досчитать повторным UPDATE:
+-- он идемпотентен и пересчитывает счетчик целиком.
+
+BEGIN;
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS comment_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE items i
+SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.item_id = i.id)
+WHERE i.comment_count <> (SELECT COUNT(*) FROM comments c WHERE c.item_id = i.id);
+
+COMMIT;
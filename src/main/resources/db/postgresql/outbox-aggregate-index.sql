@@ -0,0 +1,4 @@
+-- Индекс для захвата голов очередей агрегатов в outbox (OutboxEventRepository.lockNextHeads).
+-- Только PostgreSQL, выполняется вручную.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_outbox_events_aggregate ON outbox_events (aggregate_type, aggregate_id, id);
@@ -0,0 +1,6 @@
+-- Частичные индексы для фоновой очистки удаленных пользователей и вещей. Только PostgreSQL, выполняется вручную.
+-- Помеченных строк единицы, поэтому индексы крошечные и не мешают записи в основные таблицы.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_tombstoned ON users (id) WHERE deleted_at IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_items_tombstoned ON items (id) WHERE deleted_at IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_comments_author_id ON comments (author_id);
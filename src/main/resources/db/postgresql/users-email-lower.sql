@@ -0,0 +1,13 @@
+-- Уникальность адреса электронной почты без учета регистра. Только PostgreSQL, выполняется вручную.
+-- Приложение сохраняет адреса в нижнем регистре, старые строки приводятся к нему здесь же;
+-- если два адреса различались только регистром, UPDATE упадет на уникальном ограничении,
+-- и такие пары нужно разобрать вручную:
+--   SELECT lower(email), array_agg(id) FROM users GROUP BY lower(email) HAVING count(*) > 1;
+
+BEGIN;
+
+UPDATE users SET email = lower(email) WHERE email <> lower(email);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email_lower ON users (lower(email));
+
+COMMIT;
@@ -0,0 +1,6 @@
+-- Индексы для фильтров GET /users по префиксу имени и адреса. Только PostgreSQL, выполняется вручную.
+-- text_pattern_ops позволяет использовать индекс для LIKE 'префикс%' при любой локали базы;
+-- id в конце индекса дает порядок для постраничной выдачи по id внутри префикса.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_name_lower_prefix ON users (lower(name) text_pattern_ops, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_prefix ON users (email text_pattern_ops, id);
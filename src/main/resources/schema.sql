@@ -2,7 +2,11 @@
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
-    email VARCHAR(360) NOT NULL UNIQUE
+    email VARCHAR(360) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT uq_users_email UNIQUE (email)
     );
 
 -- Создание таблицы запросов
@@ -22,6 +26,10 @@ CREATE TABLE IF NOT EXISTS items (
     is_available BOOLEAN NOT NULL,
     owner_id BIGINT NOT NULL,
     request_id BIGINT,
+    comment_count BIGINT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP WITHOUT TIME ZONE,
     CONSTRAINT fk_items_owner FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_items_request FOREIGN KEY (request_id) REFERENCES requests(id) ON DELETE SET NULL
     );
@@ -34,6 +42,9 @@ CREATE TABLE IF NOT EXISTS bookings (
     item_id BIGINT NOT NULL,
     booker_id BIGINT NOT NULL,
     status VARCHAR(10) NOT NULL,
+    phase VARCHAR(10) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_bookings_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
     CONSTRAINT fk_bookings_booker FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT check_dates CHECK (end_date > start_date)
@@ -46,15 +57,76 @@ CREATE TABLE IF NOT EXISTS comments (
     item_id BIGINT NOT NULL,
     author_id BIGINT NOT NULL,
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_comments_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
     CONSTRAINT fk_comments_author FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE
     );
 
+-- Создание таблицы статистики бронирований по вещам
+CREATE TABLE IF NOT EXISTS item_booking_stats (
+    item_id BIGINT PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    total_count BIGINT NOT NULL,
+    waiting_count BIGINT NOT NULL,
+    approved_count BIGINT NOT NULL,
+    rejected_count BIGINT NOT NULL,
+    past_count BIGINT NOT NULL,
+    current_count BIGINT NOT NULL,
+    future_count BIGINT NOT NULL,
+    booked_minutes BIGINT NOT NULL,
+    reconciled TIMESTAMP WITHOUT TIME ZONE,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT fk_item_booking_stats_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE
+    );
+
+-- Создание таблицы исходящих событий (transactional outbox)
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    aggregate_type VARCHAR(32) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(32) NOT NULL,
+    payload VARCHAR(8192) NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    );
+
+-- Ключи идемпотентности POST /bookings и POST /items (shareit.idempotency.store=jdbc)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    status INTEGER,
+    content_type VARCHAR(255),
+    body TEXT,
+    expires_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    );
+
+-- Пары вещь-арендатор с завершенным подтвержденным бронированием (право на комментарий)
+CREATE TABLE IF NOT EXISTS comment_eligibility (
+    item_id BIGINT NOT NULL,
+    booker_id BIGINT NOT NULL,
+    first_completed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (item_id, booker_id),
+    CONSTRAINT fk_comment_eligibility_item FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
+    CONSTRAINT fk_comment_eligibility_booker FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE
+    );
+
 -- Создание индексов для оптимизации запросов
 CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items(owner_id);
 CREATE INDEX IF NOT EXISTS idx_items_available ON items(is_available);
 CREATE INDEX IF NOT EXISTS idx_bookings_item_id ON bookings(item_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_booker_id ON bookings(booker_id);
 CREATE INDEX IF NOT EXISTS idx_bookings_status ON bookings(status);
-CREATE INDEX IF NOT EXISTS idx_comments_item_id ON comments(item_id);
-CREATE INDEX IF NOT EXISTS idx_requests_requestor_id ON requests(requestor_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_phase ON bookings(booker_id, phase, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_phase ON bookings(item_id, phase);
+CREATE INDEX IF NOT EXISTS idx_bookings_phase_start ON bookings(phase, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_phase_end ON bookings(phase, end_date);
+CREATE INDEX IF NOT EXISTS idx_comments_item_id_id ON comments(item_id, id DESC);
+CREATE INDEX IF NOT EXISTS idx_requests_requestor_id ON requests(requestor_id);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests(created DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_items_request_id ON items(request_id);
+CREATE INDEX IF NOT EXISTS idx_item_booking_stats_owner_id ON item_booking_stats(owner_id);
+CREATE INDEX IF NOT EXISTS idx_outbox_events_aggregate ON outbox_events(aggregate_type, aggregate_id, id);
+CREATE INDEX IF NOT EXISTS idx_users_deleted_at ON users(deleted_at);
+CREATE INDEX IF NOT EXISTS idx_items_deleted_at ON items(deleted_at);
+CREATE INDEX IF NOT EXISTS idx_comments_author_id ON comments(author_id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_booker_status_end ON bookings(item_id, booker_id, status, end_date);
@@ -1,19 +1,41 @@
 package ru.practicum.shareit;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.archive.ArchivedBooking;
+import ru.practicum.shareit.booking.archive.BookingArchive;
+import ru.practicum.shareit.booking.archive.BookingArchiver;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.OwnerBookingStatsDto;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.ItemBookingStats;
+import ru.practicum.shareit.booking.repository.ItemBookingStatsRepository;
+import ru.practicum.shareit.booking.service.BookingExportService;
+import ru.practicum.shareit.booking.service.BookingPhaseScheduler;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingStatsService;
+import ru.practicum.shareit.common.ExportFormat;
 import ru.practicum.shareit.exception.AccessDeniedException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.sharding.ShardRouter;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +49,33 @@ public class BookingTest extends IntegrationTest {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @Autowired
+    private BookingExportService bookingExportService;
+
+    @Autowired
+    private BookingArchiver bookingArchiver;
+
+    @Autowired
+    private BookingArchive bookingArchive;
+
+    @Autowired
+    private ItemBookingStatsRepository statsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
     @Autowired
     private ItemService itemService;
 
@@ -120,6 +169,42 @@ public class BookingTest extends IntegrationTest {
                 .hasMessageContaining("Дата окончания должна быть больше даты начала");
     }
 
+    @Test
+    void createBooking_ShouldAcceptLongBooking_WhenMaxDurationIsNotSet() {
+
+        BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(1))
+                .end(now.plusDays(1).plusDays(400))
+                .build(), bookerId);
+
+        assertThat(bookingService.getUserBookings(bookerId, "FUTURE", 0, 10))
+                .extracting(BookingResponseDto::getId)
+                .containsExactly(booking.getId());
+        assertThat(bookingService.getOwnerBookings(ownerId, "FUTURE", 0, 10))
+                .extracting(BookingResponseDto::getId)
+                .containsExactly(booking.getId());
+    }
+
+    @Test
+    void createBooking_ShouldThrowException_WhenBookingIsLongerThanConfiguredMaxDuration() {
+        Object target = AopTestUtils.getTargetObject(bookingService);
+        ReflectionTestUtils.setField(target, "maxDuration", Duration.ofDays(180));
+        try {
+            BookingDto bookingDto = BookingDto.builder()
+                    .itemId(itemId)
+                    .start(now.plusDays(1))
+                    .end(now.plusDays(1).plusDays(181))
+                    .build();
+
+            assertThatThrownBy(() -> bookingService.createBooking(bookingDto, bookerId))
+                    .isInstanceOf(ValidationException.class)
+                    .hasMessageContaining("не может быть длиннее");
+        } finally {
+            ReflectionTestUtils.setField(target, "maxDuration", null);
+        }
+    }
+
     @Test
     void createBooking_ShouldThrowException_WhenOwnerTriesToBookOwnItem() {
 
@@ -398,4 +483,257 @@ public class BookingTest extends IntegrationTest {
 
         assertThat(ownerBookings).hasSize(2);
     }
+
+    @Test
+    void getOwnerBookings_ShouldFilterByPhase_ForOwnerItems() {
+
+        BookingResponseDto current = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(1))
+                .end(now.plusDays(1))
+                .build(), bookerId);
+
+        BookingResponseDto past = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build(), bookerId);
+
+        BookingResponseDto future = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(5))
+                .end(now.plusDays(7))
+                .build(), bookerId);
+
+        assertThat(bookingService.getOwnerBookings(ownerId, "CURRENT", 0, 10))
+                .extracting(BookingResponseDto::getId).containsExactly(current.getId());
+        assertThat(bookingService.getOwnerBookings(ownerId, "PAST", 0, 10))
+                .extracting(BookingResponseDto::getId).containsExactly(past.getId());
+        assertThat(bookingService.getOwnerBookings(ownerId, "FUTURE", 0, 10))
+                .extracting(BookingResponseDto::getId).containsExactly(future.getId());
+        assertThat(bookingService.getUserBookings(bookerId, "CURRENT", 0, 10))
+                .extracting(BookingResponseDto::getId).containsExactly(current.getId());
+    }
+
+    @Test
+    void getOwnerStats_ShouldCountBookingsIncrementally() {
+
+        BookingResponseDto approved = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(1))
+                .end(now.plusDays(3))
+                .build(), bookerId);
+        bookingService.approveBooking(approved.getId(), true, ownerId);
+
+        BookingResponseDto rejected = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(5))
+                .end(now.plusDays(7))
+                .build(), bookerId);
+        bookingService.approveBooking(rejected.getId(), false, ownerId);
+
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build(), bookerId);
+
+        OwnerBookingStatsDto stats = bookingStatsService.getOwnerStats(ownerId);
+
+        assertThat(stats.getAll()).isEqualTo(3);
+        assertThat(stats.getWaiting()).isEqualTo(1);
+        assertThat(stats.getApproved()).isEqualTo(1);
+        assertThat(stats.getRejected()).isEqualTo(1);
+        assertThat(stats.getFuture()).isEqualTo(2);
+        assertThat(stats.getPast()).isEqualTo(1);
+        assertThat(stats.getBookedMinutes()).isEqualTo(2 * 24 * 60);
+        assertThat(stats.getItems()).hasSize(1);
+    }
+
+    @Test
+    void reconcile_ShouldMatchIncrementalStats() {
+
+        for (int i = 1; i <= 3; i++) {
+            BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                    .itemId(itemId)
+                    .start(now.plusDays(i))
+                    .end(now.plusDays(i + 1))
+                    .build(), bookerId);
+            bookingService.approveBooking(booking.getId(), i % 2 == 0, ownerId);
+        }
+
+        OwnerBookingStatsDto incremental = bookingStatsService.getOwnerStats(ownerId);
+
+        bookingStatsService.reconcile();
+
+        OwnerBookingStatsDto reconciled = bookingStatsService.getOwnerStats(ownerId);
+
+        assertThat(reconciled).isEqualTo(incremental);
+    }
+
+    @Test
+    void reconcile_ShouldNotOverwriteIncrementCommittedDuringRecount() {
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .build(), bookerId);
+        // пересчет прочитал версию строки и насчитал одно бронирование
+        long version = (Long) statsRepository.findVersions(List.of(itemId)).get(0)[1];
+        ItemBookingStats recount = ItemBookingStats.builder()
+                .itemId(itemId).ownerId(ownerId)
+                .totalCount(1L).waitingCount(1L).approvedCount(0L).rejectedCount(0L)
+                .pastCount(0L).currentCount(0L).futureCount(1L).bookedMinutes(0L)
+                .reconciled(now)
+                .build();
+
+        // до записи пересчета зафиксировано второе бронирование
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(3))
+                .end(now.plusDays(4))
+                .build(), bookerId);
+
+        assertThat(statsRepository.replaceIfUnchanged(recount, version)).isZero();
+        assertThat(bookingStatsService.getOwnerStats(ownerId).getAll()).isEqualTo(2);
+
+        // разошедшуюся строку следующий пересчет исправляет
+        statsRepository.applyDelta(itemId, 5, 0, 0, 0, 0, 0, 0, 0);
+        bookingStatsService.reconcile();
+        assertThat(bookingStatsService.getOwnerStats(ownerId).getAll()).isEqualTo(2);
+    }
+
+    @Test
+    void phaseSchedulerRefresh_ShouldLoadOnlyBoundariesWithinHorizonOnce() {
+        // в тестах фоновый планировщик выключен, поэтому проверяется отдельный экземпляр без рабочего потока
+        BookingPhaseScheduler scheduler = new BookingPhaseScheduler(bookingRepository, transactionTemplate,
+                eventPublisher, shardRouter, true, Duration.ofMinutes(10));
+
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusMinutes(5))
+                .end(now.plusDays(1))
+                .build(), bookerId);
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(2))
+                .end(now.plusDays(3))
+                .build(), bookerId);
+
+        scheduler.refresh();
+        scheduler.refresh();
+
+        assertThat(scheduler.getScheduledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void exportOwnerBookings_ShouldStreamEveryBookingAsNdjsonAndCsv() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            bookingService.createBooking(BookingDto.builder()
+                    .itemId(itemId)
+                    .start(now.plusDays(i))
+                    .end(now.plusDays(i).plusHours(1))
+                    .build(), bookerId);
+        }
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        bookingExportService.exportOwnerBookings(ownerId, ExportFormat.NDJSON, ndjson);
+
+        List<String> lines = ndjson.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readValue(lines.get(0), BookingResponseDto.class).getBooker().getName())
+                .isEqualTo("Бронирующий");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        bookingExportService.exportBookerBookings(bookerId, ExportFormat.CSV, csv);
+
+        List<String> rows = csv.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(rows).hasSize(4);
+        assertThat(rows.get(0)).startsWith("id,start,end,status");
+        assertThat(rows.get(1)).contains("Дрель", "WAITING");
+
+        assertThatThrownBy(() -> bookingExportService.exportOwnerBookings(999L, ExportFormat.CSV, csv))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void archive_ShouldMoveOldBookingsOutOfDatabaseAndKeepThemInPastQueries() {
+        BookingResponseDto old = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(400))
+                .end(now.minusDays(399))
+                .build(), bookerId);
+        BookingResponseDto recent = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build(), bookerId);
+
+        int archived = bookingArchiver.archiveFinishedBefore(now.minusDays(30));
+
+        assertThat(archived).isEqualTo(1);
+        assertThat(bookingRepository.existsById(old.getId())).isFalse();
+
+        List<BookingResponseDto> past = bookingService.getUserBookings(bookerId, "PAST", 0, 10);
+        assertThat(past).extracting(BookingResponseDto::getId).containsExactly(recent.getId(), old.getId());
+        assertThat(past.get(1).getItem().getName()).isEqualTo("Дрель");
+        assertThat(past.get(1).getBooker().getName()).isEqualTo("Бронирующий");
+        assertThat(past.get(1).getStart()).isEqualTo(old.getStart());
+
+        assertThat(bookingService.getOwnerBookings(ownerId, "ALL", 0, 10)).hasSize(2);
+        assertThat(bookingService.getOwnerBookings(ownerId, "FUTURE", 0, 10)).isEmpty();
+        assertThat(bookingService.getOwnerBookings(bookerId, "PAST", 0, 10)).isEmpty();
+    }
+
+    @Test
+    void bookingsTag_ShouldChangeWhenArchiveGrows() throws Exception {
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .build(), bookerId);
+        String bookerTag = bookingService.getUserBookingsTag(bookerId, "ALL", 0, 10).orElseThrow().getValue();
+        String ownerTag = bookingService.getOwnerBookingsTag(ownerId, "ALL", 0, 10).orElseThrow().getValue();
+
+        // новый файл архива мог добавить строки в ответ, хотя живые строки не менялись
+        bookingArchive.append(List.of(archived(Long.MAX_VALUE, -1L, -1L)));
+
+        assertThat(bookingService.getUserBookingsTag(bookerId, "ALL", 0, 10).orElseThrow().getValue())
+                .isNotEqualTo(bookerTag);
+        assertThat(bookingService.getOwnerBookingsTag(ownerId, "ALL", 0, 10).orElseThrow().getValue())
+                .isNotEqualTo(ownerTag);
+    }
+
+    @Test
+    void archive_ShouldSkipSegmentsWhoseZoneMapExcludesKey(@TempDir Path directory) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BookingArchive archive = new BookingArchive(directory, registry);
+        archive.append(List.of(archived(2L, 1L, 30L), archived(1L, 1L, 10L)));
+        archive.append(List.of(archived(3L, 2L, 20L)));
+
+        assertThat(archive.findByItemOwnerId(2L)).extracting(ArchivedBooking::getId).containsExactly(3L);
+        // у первого файла 20 попадает в диапазон арендаторов 10..30, но не проходит фильтр Блума
+        assertThat(archive.findByBookerId(20L)).extracting(ArchivedBooking::getId).containsExactly(3L);
+        assertThat(archive.findByBookerId(10L)).extracting(ArchivedBooking::getId).containsExactly(1L);
+
+        assertThat(registry.counter("shareit.bookings.archive.segments", "result", "scanned").count())
+                .isEqualTo(3);
+        assertThat(registry.counter("shareit.bookings.archive.segments", "result", "skipped").count())
+                .isEqualTo(3);
+    }
+
+    private ArchivedBooking archived(long id, long ownerId, long bookerId) {
+        return ArchivedBooking.builder()
+                .id(id)
+                .start(now.minusDays(400))
+                .end(now.minusDays(399))
+                .status(BookingStatus.APPROVED)
+                .itemId(id)
+                .itemName("Вещь " + id)
+                .itemDescription("Описание")
+                .ownerId(ownerId)
+                .bookerId(bookerId)
+                .bookerName("Арендатор " + bookerId)
+                .build();
+    }
 }
@@ -7,13 +7,18 @@ import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.CommentEligibility;
+import ru.practicum.shareit.item.repository.CommentEligibilityRepository;
+import ru.practicum.shareit.item.service.CommentEligibilityService;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -29,6 +34,12 @@ public class CommentTest extends IntegrationTest {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private CommentEligibilityService commentEligibilityService;
+
+    @Autowired
+    private CommentEligibilityRepository commentEligibilityRepository;
+
     private Long ownerId;
     private Long bookerId;
     private Long itemId;
@@ -156,4 +167,55 @@ public class CommentTest extends IntegrationTest {
 
         assertThat(itemWithoutComments.getComments()).isNullOrEmpty();
     }
+
+    @Test
+    void getItemById_ShouldReturnLatestCommentsWindow_AndCommentsArePaged() {
+        BookingDto bookingDto = BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build();
+        Long bookingId = bookingService.createBooking(bookingDto, bookerId).getId();
+        bookingService.approveBooking(bookingId, true, ownerId);
+
+        for (int i = 1; i <= 3; i++) {
+            itemService.addComment(itemId, CreateCommentDto.builder().text("Отзыв " + i).build(), bookerId);
+        }
+
+        // в карточке только окно из последних комментариев, счётчик - полный
+        ItemDto item = itemService.getItemById(itemId, ownerId);
+        assertThat(item.getCommentCount()).isEqualTo(3L);
+        assertThat(item.getComments()).extracting(CommentDto::getText)
+                .containsExactly("Отзыв 3", "Отзыв 2");
+
+        List<ItemDto> ownerItems = itemService.getAllItemsByOwner(ownerId, 0, 10);
+        assertThat(ownerItems.get(0).getComments()).extracting(CommentDto::getText)
+                .containsExactly("Отзыв 3", "Отзыв 2");
+
+        // остальные комментарии доступны постранично по ключу id
+        List<CommentDto> firstPage = itemService.getComments(itemId, null, 2);
+        assertThat(firstPage).extracting(CommentDto::getText).containsExactly("Отзыв 3", "Отзыв 2");
+
+        List<CommentDto> secondPage = itemService.getComments(itemId, firstPage.get(1).getId(), 2);
+        assertThat(secondPage).extracting(CommentDto::getText).containsExactly("Отзыв 1");
+    }
+
+    @Test
+    void approveFinishedBooking_ShouldGrantCommentEligibility() {
+        BookingDto bookingDto = BookingDto.builder()
+                .itemId(itemId)
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build();
+        Long bookingId = bookingService.createBooking(bookingDto, bookerId).getId();
+
+        CommentEligibility.Key key = new CommentEligibility.Key(itemId, bookerId);
+        assertThat(commentEligibilityRepository.existsById(key)).isFalse();
+
+        bookingService.approveBooking(bookingId, true, ownerId);
+
+        assertThat(commentEligibilityRepository.existsById(key)).isTrue();
+        assertThat(commentEligibilityService.isEligible(itemId, bookerId, LocalDateTime.now())).isTrue();
+        assertThat(commentEligibilityService.isEligible(itemId, ownerId, LocalDateTime.now())).isFalse();
+    }
 }
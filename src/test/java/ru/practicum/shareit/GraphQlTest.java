@@ -0,0 +1,144 @@
+package ru.practicum.shareit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureGraphQlTester;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.graphql.GraphQlConfig;
+import ru.practicum.shareit.item.dto.CreateCommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureGraphQlTester
+public class GraphQlTest extends IntegrationTest {
+
+    @Autowired
+    private ExecutionGraphQlServiceTester graphQlTester;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+
+        ownerId = userService.createUser(UserDto.builder()
+                .name("Владелец")
+                .email("owner@test.com")
+                .build()).getId();
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Бронирующий")
+                .email("booker@test.com")
+                .build()).getId();
+
+        for (String name : new String[]{"Дрель", "Пила"}) {
+            Long itemId = itemService.createItem(ItemDto.builder()
+                    .name(name)
+                    .description("Инструмент")
+                    .available(true)
+                    .build(), ownerId).getId();
+
+            BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                    .itemId(itemId)
+                    .start(now.minusDays(5))
+                    .end(now.minusDays(3))
+                    .build(), bookerId);
+            bookingService.approveBooking(booking.getId(), true, ownerId);
+            itemService.addComment(itemId, CreateCommentDto.builder().text(name + " в порядке").build(), bookerId);
+        }
+    }
+
+    @Test
+    void items_ShouldResolveNestedFieldsInBatches() {
+        ExecutionGraphQlServiceTester asOwner = graphQlTester.mutate()
+                .configureExecutionInput((input, builder) ->
+                        builder.graphQLContext(context -> context.of(GraphQlConfig.CALLER_ID, ownerId)).build())
+                .build();
+
+        // изменения из setUp сбрасываются заранее, чтобы не попасть в счетчик запросов
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        asOwner.document("""
+                        query ($ownerId: ID!) {
+                          items(ownerId: $ownerId) {
+                            name
+                            owner { name }
+                            comments { text authorName }
+                            lastBooking { booker { name } }
+                          }
+                        }""")
+                .variable("ownerId", ownerId)
+                .execute()
+                .path("items[*].name").entityList(String.class).contains("Дрель", "Пила")
+                .path("items[*].owner.name").entityList(String.class).containsExactly("Владелец", "Владелец")
+                .path("items[0].comments[0].authorName").entity(String.class).isEqualTo("Бронирующий")
+                .path("items[*].lastBooking.booker.name").entityList(String.class)
+                .containsExactly("Бронирующий", "Бронирующий");
+
+        // по запросу на поле: items, owner, comments, lastBooking, booker - независимо от числа вещей
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+        statistics.setStatisticsEnabled(false);
+
+        // без X-Sharer-User-Id бронирования владельца не видны
+        graphQlTester.document("query ($ownerId: ID!) { items(ownerId: $ownerId) { lastBooking { id } } }")
+                .variable("ownerId", ownerId)
+                .execute()
+                .path("items[0].lastBooking").valueIsNull();
+    }
+
+    @Test
+    void users_ShouldRejectMoreIdsThanLimit() {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        graphQlTester.document("query ($ids: [ID!]!) { users(ids: $ids) { id } }")
+                .variable("ids", ids)
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors)
+                        .anySatisfy(error -> assertThat(error.getErrorType()).isEqualTo(ErrorType.BAD_REQUEST)));
+    }
+
+    @Test
+    void deepQuery_ShouldBeRejectedBeforeExecution() {
+        graphQlTester.document("""
+                        query ($ownerId: ID!) {
+                          items(ownerId: $ownerId) { owner { items { owner { items { owner { items { name } } } } } } }
+                        }""")
+                .variable("ownerId", ownerId)
+                .execute()
+                .errors()
+                .satisfy(errors -> assertThat(errors).isNotEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.shareit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.idempotency.IdempotencyFilter;
+import ru.practicum.shareit.idempotency.IdempotencyRecord;
+import ru.practicum.shareit.idempotency.IdempotencyStoreFullException;
+import ru.practicum.shareit.idempotency.IdempotentResponse;
+import ru.practicum.shareit.idempotency.InMemoryIdempotencyStore;
+import ru.practicum.shareit.idempotency.JdbcIdempotencyStore;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+public class IdempotencyTest extends IntegrationTest {
+
+    @Autowired
+    private IdempotencyFilter idempotencyFilter;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final FilterChain createItem = (request, response) -> {
+        int call = calls.incrementAndGet();
+        ((HttpServletResponse) response).setStatus(201);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(("{\"id\":" + call + "}").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void retryWithSameKey_ShouldReturnSavedResponseWithoutSecondCall() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = postThroughFilter(key, "{\"name\":\"Дрель\"}", createItem);
+        MockHttpServletResponse retry = postThroughFilter(key, "{\"name\":\"Дрель\"}", createItem);
+
+        assertThat(calls).hasValue(1);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString()).isEqualTo("{\"id\":1}");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+
+        MockHttpServletResponse otherBody = postThroughFilter(key, "{\"name\":\"Пила\"}", createItem);
+        assertThat(otherBody.getStatus()).isEqualTo(422);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void retryAfterFailure_ShouldExecuteAgain() throws Exception {
+        String key = UUID.randomUUID().toString();
+        FilterChain failing = (request, response) -> {
+            calls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(400);
+        };
+
+        assertThat(postThroughFilter(key, "{}", failing).getStatus()).isEqualTo(400);
+        assertThat(postThroughFilter(key, "{}", createItem).getStatus()).isEqualTo(201);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void createItemRetry_ShouldCreateItemOnce() throws Exception {
+        Long ownerId = userService.createUser(UserDto.builder()
+                .name("Владелец")
+                .email("owner@test.com")
+                .build()).getId();
+        String key = UUID.randomUUID().toString();
+        String body = "{\"name\":\"Дрель\",\"description\":\"Аккумуляторная дрель\",\"available\":true}";
+
+        String created = mockMvc.perform(post("/items")
+                        .header("X-Sharer-User-Id", ownerId)
+                        .header(IdempotencyFilter.KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String replayed = mockMvc.perform(post("/items")
+                        .header("X-Sharer-User-Id", ownerId)
+                        .header(IdempotencyFilter.KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(replayed).isEqualTo(created);
+        assertThat(itemRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void jdbcStore_ShouldLeaseKeyAndKeepResponseForTtl() {
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(dataSource, shardRouter);
+        String key = "1:/items:" + UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThat(store.reserve(key, "fp", now.plusMinutes(1))).isEmpty();
+        Optional<IdempotencyRecord> inProgress = store.reserve(key, "fp", now.plusMinutes(1));
+        assertThat(inProgress).isPresent();
+        assertThat(inProgress.get().getResponse()).isNull();
+
+        store.complete(key, new IdempotentResponse(201, MediaType.APPLICATION_JSON_VALUE,
+                "{\"id\":1}".getBytes(StandardCharsets.UTF_8)), now.plusHours(24));
+        IdempotencyRecord completed = store.reserve(key, "fp", now.plusMinutes(1)).orElseThrow();
+        assertThat(completed.getFingerprint()).isEqualTo("fp");
+        assertThat(completed.getResponse().getStatus()).isEqualTo(201);
+        assertThat(new String(completed.getResponse().getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}");
+        assertThat(completed.getExpiresAt()).isAfter(now.plusHours(23));
+
+        store.release(key);
+        assertThat(store.reserve(key, "other", now.plusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void jdbcStore_ShouldFreeKeyWhenLeaseExpiresWithoutResponse() {
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(dataSource, shardRouter);
+        String key = "1:/bookings:" + UUID.randomUUID();
+
+        // экземпляр занял ключ и упал, не сохранив ответ: аренда истекла
+        assertThat(store.reserve(key, "fp", LocalDateTime.now().minusSeconds(1))).isEmpty();
+
+        assertThat(store.reserve(key, "fp", LocalDateTime.now().plusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void fullMemoryStore_ShouldRejectNewKeyInsteadOfSkippingProtection() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(1);
+        LocalDateTime lease = LocalDateTime.now().plusMinutes(1);
+
+        assertThat(store.reserve("a", "fp", lease)).isEmpty();
+
+        assertThatThrownBy(() -> store.reserve("b", "fp", lease)).isInstanceOf(IdempotencyStoreFullException.class);
+        assertThat(store.reserve("a", "fp", lease)).isPresent();
+    }
+
+    private MockHttpServletResponse postThroughFilter(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/items");
+        request.addHeader("X-Sharer-User-Id", "1");
+        request.addHeader(IdempotencyFilter.KEY_HEADER, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(request, response, chain);
+        return response;
+    }
+}
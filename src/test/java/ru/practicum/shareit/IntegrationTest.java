@@ -8,6 +8,7 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 @SpringBootTest
@@ -26,12 +27,16 @@ public abstract class IntegrationTest {
     @Autowired
     protected CommentRepository commentRepository;
 
+    @Autowired
+    protected ItemRequestRepository itemRequestRepository;
+
     @BeforeEach
     void cleanDatabase() {
         // Очищаем все таблицы перед каждым тестом
         commentRepository.deleteAll();
         bookingRepository.deleteAll();
         itemRepository.deleteAll();
+        itemRequestRepository.deleteAll();
         userRepository.deleteAll();
     }
 }
@@ -0,0 +1,119 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ItemRequestTest extends IntegrationTest {
+
+    @Autowired
+    private ItemRequestService itemRequestService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private UserService userService;
+
+    private Long requestorId;
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        UserDto requestor = UserDto.builder()
+                .name("Автор запроса")
+                .email("requestor@test.com")
+                .build();
+        requestorId = userService.createUser(requestor).getId();
+
+        UserDto owner = UserDto.builder()
+                .name("Владелец")
+                .email("owner@test.com")
+                .build();
+        ownerId = userService.createUser(owner).getId();
+    }
+
+    @Test
+    void createRequest_ShouldSaveRequest_WhenDataIsValid() {
+        ItemRequestDto created = itemRequestService.createRequest(
+                CreateItemRequestDto.builder().description("Нужна дрель").build(), requestorId);
+
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getDescription()).isEqualTo("Нужна дрель");
+        assertThat(created.getRequestorId()).isEqualTo(requestorId);
+        assertThat(created.getCreated()).isNotNull();
+        assertThat(created.getItems()).isEmpty();
+    }
+
+    @Test
+    void createRequest_ShouldThrowException_WhenUserDoesNotExist() {
+        CreateItemRequestDto requestDto = CreateItemRequestDto.builder().description("Нужна дрель").build();
+
+        assertThatThrownBy(() -> itemRequestService.createRequest(requestDto, 999L))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("не найден");
+    }
+
+    @Test
+    void getOwnRequests_ShouldIncludeAnsweringItems() {
+        ItemRequestDto request = itemRequestService.createRequest(
+                CreateItemRequestDto.builder().description("Нужна дрель").build(), requestorId);
+
+        ItemDto answer = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .requestId(request.getId())
+                .build(), ownerId);
+
+        List<ItemRequestDto> ownRequests = itemRequestService.getOwnRequests(requestorId);
+
+        assertThat(ownRequests).hasSize(1);
+        assertThat(ownRequests.get(0).getItems()).hasSize(1);
+        assertThat(ownRequests.get(0).getItems().get(0).getId()).isEqualTo(answer.getId());
+        assertThat(ownRequests.get(0).getItems().get(0).getOwnerId()).isEqualTo(ownerId);
+    }
+
+    @Test
+    void getOtherRequests_ShouldPageByCursor_AndSkipOwnRequests() {
+        for (int i = 1; i <= 3; i++) {
+            itemRequestService.createRequest(
+                    CreateItemRequestDto.builder().description("Запрос " + i).build(), requestorId);
+        }
+        itemRequestService.createRequest(
+                CreateItemRequestDto.builder().description("Свой запрос").build(), ownerId);
+
+        List<ItemRequestDto> firstPage = itemRequestService.getOtherRequests(ownerId, null, null, 2);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage).extracting(ItemRequestDto::getDescription)
+                .containsExactly("Запрос 3", "Запрос 2");
+
+        ItemRequestDto last = firstPage.get(firstPage.size() - 1);
+        List<ItemRequestDto> secondPage = itemRequestService.getOtherRequests(
+                ownerId, last.getCreated(), last.getId(), 2);
+
+        assertThat(secondPage).extracting(ItemRequestDto::getDescription)
+                .containsExactly("Запрос 1");
+    }
+
+    @Test
+    void getRequestById_ShouldThrowException_WhenRequestDoesNotExist() {
+        assertThatThrownBy(() -> itemRequestService.getRequestById(999L, requestorId))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("не найден");
+    }
+}
@@ -1,20 +1,53 @@
 package ru.practicum.shareit;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingStatsService;
+import ru.practicum.shareit.common.EntityTag;
+import ru.practicum.shareit.common.SingleFlight;
+import ru.practicum.shareit.common.TombstonePurger;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemViewCoalescer;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@AutoConfigureMockMvc
 public class ItemTest extends IntegrationTest {
 
     @Autowired
@@ -23,6 +56,27 @@ public class ItemTest extends IntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TombstonePurger tombstonePurger;
+
+    @Autowired
+    private ItemViewCoalescer itemViewCoalescer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookingStatsService bookingStatsService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private Long ownerId;
 
     @BeforeEach
@@ -161,6 +215,31 @@ public class ItemTest extends IntegrationTest {
                 .hasMessageContaining("не найдена у пользователя");
     }
 
+    @Test
+    void updateItem_ShouldCheckOwnershipInAvailabilityUpdate() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Обычная дрель")
+                .available(true)
+                .build(), ownerId);
+        Long otherUserId = userService.createUser(UserDto.builder()
+                .name("Другой пользователь")
+                .email("other@test.com")
+                .build()).getId();
+        long versionBefore = itemRepository.findById(savedItem.getId()).orElseThrow().getVersion();
+
+        assertThatThrownBy(() -> itemService.updateItem(savedItem.getId(), Map.of("available", false), otherUserId))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("не найдена у пользователя");
+        assertThat(itemRepository.findById(savedItem.getId()).orElseThrow().getAvailable()).isTrue();
+
+        itemService.updateItem(savedItem.getId(), Map.of("available", false), ownerId);
+
+        assertThat(itemRepository.findById(savedItem.getId()).orElseThrow())
+                .satisfies(item -> assertThat(item.getAvailable()).isFalse())
+                .satisfies(item -> assertThat(item.getVersion()).isEqualTo(versionBefore + 1));
+    }
+
     @Test
     void getAllItemsByOwner_ShouldReturnAllOwnerItems() {
 
@@ -228,6 +307,154 @@ public class ItemTest extends IntegrationTest {
         assertThat(searchResults).isEmpty();
     }
 
+    @Test
+    void getItemById_ShouldGiveOwnerBookingsAndOthersSharedView() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Палатка")
+                .description("Четырехместная палатка")
+                .available(true)
+                .build(), ownerId);
+        Long viewerId = userService.createUser(UserDto.builder()
+                .name("Зритель")
+                .email("viewer@test.com")
+                .build()).getId();
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build(), viewerId);
+        Long bookingId = bookingRepository.findAll().get(0).getId();
+        bookingService.approveBooking(bookingId, true, ownerId);
+
+        assertThat(itemService.getItemById(savedItem.getId(), viewerId).getNextBooking()).isNull();
+        assertThat(itemService.getItemById(savedItem.getId(), ownerId).getNextBooking()).isNotNull();
+    }
+
+    @Test
+    void itemViewCoalescer_ShouldShareOneComputationBetweenConcurrentCalls() throws Exception {
+        double coalescedBefore = meterRegistry.counter("shareit.singleflight.calls",
+                "name", "item-view", "result", "coalesced").count();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger computations = new AtomicInteger();
+        ItemDto view = ItemDto.builder()
+                .id(-1L)
+                .name("Общая карточка")
+                .comments(List.of(CommentDto.builder().id(1L).text("Отлично").build()))
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            Future<ItemDto> leader = executor.submit(() -> itemViewCoalescer.publicView(-1L, () -> {
+                computations.incrementAndGet();
+                leaderStarted.countDown();
+                awaitQuietly(release);
+                return view;
+            }));
+            assertThat(leaderStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<ItemDto>> followers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                followers.add(executor.submit(() -> itemViewCoalescer.publicView(-1L, () -> {
+                    computations.incrementAndGet();
+                    return view;
+                })));
+            }
+            // ожидающие зарегистрированы, когда счетчик объединенных вызовов вырос на их число
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (meterRegistry.counter("shareit.singleflight.calls",
+                    "name", "item-view", "result", "coalesced").count() < coalescedBefore + 4) {
+                assertThat(System.nanoTime()).as("ожидающие не зарегистрировались за 10 с").isLessThan(deadline);
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            ItemDto leaderView = leader.get(10, TimeUnit.SECONDS);
+            assertThat(leaderView).isEqualTo(view).isNotSameAs(view);
+            for (Future<ItemDto> follower : followers) {
+                assertThat(follower.get(10, TimeUnit.SECONDS)).isEqualTo(view).isNotSameAs(leaderView);
+            }
+            assertThat(computations).hasValue(1);
+
+            // у каждого вызова своя копия: изменение одной не видно остальным
+            leaderView.setName("Чужое имя");
+            leaderView.getComments().get(0).setText("Чужой отзыв");
+            assertThat(followers.get(0).get().getName()).isEqualTo("Общая карточка");
+            assertThat(followers.get(0).get().getComments().get(0).getText()).isEqualTo("Отлично");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void singleFlight_ShouldComputeLocallyWhenLeaderHangs() throws Exception {
+        SingleFlight<Long, String> singleFlight =
+                new SingleFlight<>("test", new SimpleMeterRegistry(), Duration.ofMillis(50));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute(1L, () -> {
+                leaderStarted.countDown();
+                awaitQuietly(release);
+                return "общий";
+            }));
+            assertThat(leaderStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(singleFlight.execute(1L, () -> "свой")).isEqualTo("свой");
+
+            release.countDown();
+            assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("общий");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void setAvailability_ShouldHideItemFromSearchAndBooking() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Лестница")
+                .description("Стремянка на пять ступеней")
+                .available(true)
+                .build(), ownerId);
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Арендатор")
+                .email("booker@test.com")
+                .build()).getId();
+        BookingDto booking = BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build();
+
+        assertThatThrownBy(() -> itemService.setAvailability(savedItem.getId(), bookerId, false))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("не найдена у пользователя");
+
+        itemService.setAvailability(savedItem.getId(), ownerId, false);
+
+        assertThat(itemService.searchItems("стремянка", bookerId, 0, 10)).isEmpty();
+        assertThatThrownBy(() -> bookingService.createBooking(booking, bookerId))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("недоступна");
+
+        itemService.setAvailability(savedItem.getId(), ownerId, true);
+
+        assertThat(itemService.searchItems("стремянка", bookerId, 0, 10))
+                .extracting(ItemDto::getId)
+                .containsExactly(savedItem.getId());
+        assertThat(bookingService.createBooking(booking, bookerId).getId()).isNotNull();
+    }
+
     @Test
     void deleteItem_ShouldRemoveItem_WhenUserIsOwner() {
 
@@ -268,4 +495,169 @@ public class ItemTest extends IntegrationTest {
                 .isInstanceOf(NoSuchElementException.class)
                 .hasMessageContaining("не найдена у пользователя");
     }
+
+    @Test
+    void deleteItem_ShouldHideItemAndPurgeBookingsLater_WhenItemHasDependents() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Популярная вещь")
+                .description("Много бронирований")
+                .available(true)
+                .build(), ownerId);
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Арендатор")
+                .email("booker@test.com")
+                .build()).getId();
+        LocalDateTime now = LocalDateTime.now();
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(now.plusDays(1))
+                .end(now.plusDays(2))
+                .build(), bookerId);
+
+        itemService.deleteItem(savedItem.getId(), ownerId);
+
+        // порог в тестах нулевой: вещь скрыта сразу, бронирование ждет фоновой очистки
+        assertThat(itemRepository.findById(savedItem.getId())).isEmpty();
+        assertThat(itemService.getAllItemsByOwner(ownerId, 0, 10)).isEmpty();
+        assertThat(bookingRepository.countByItemId(savedItem.getId())).isEqualTo(1);
+        assertThatThrownBy(() -> itemService.deleteItem(savedItem.getId(), ownerId))
+                .isInstanceOf(NoSuchElementException.class);
+
+        assertThat(tombstonePurger.purge()).isEqualTo(2);
+        assertThat(bookingRepository.countByItemId(savedItem.getId())).isZero();
+        assertThat(tombstonePurger.purge()).isZero();
+    }
+
+    @Test
+    void lastBooking_ShouldBeFinishedInOwnerListAndStartedInItemCard() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId);
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Арендатор")
+                .email("booker@test.com")
+                .build()).getId();
+        LocalDateTime now = LocalDateTime.now();
+        BookingResponseDto finished = bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build(), bookerId);
+        BookingResponseDto inProgress = bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(now.minusDays(1))
+                .end(now.plusDays(1))
+                .build(), bookerId);
+        bookingService.approveBooking(finished.getId(), true, ownerId);
+        bookingService.approveBooking(inProgress.getId(), true, ownerId);
+
+        // в списке вещей владельца последнее - завершенное бронирование, идущее сейчас не считается
+        assertThat(itemService.getAllItemsByOwner(ownerId, 0, 10))
+                .singleElement()
+                .satisfies(item -> assertThat(item.getLastBooking().getId()).isEqualTo(finished.getId()));
+        // в карточке вещи последнее - уже начавшееся
+        assertThat(itemService.getItemById(savedItem.getId(), ownerId).getLastBooking().getId())
+                .isEqualTo(inProgress.getId());
+    }
+
+    @Test
+    void deleteUser_ShouldHideBookerDependentsAndFixItemCountersOnPurge() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId);
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Арендатор")
+                .email("booker@test.com")
+                .build()).getId();
+        LocalDateTime now = LocalDateTime.now();
+        BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(now.minusDays(5))
+                .end(now.minusDays(3))
+                .build(), bookerId);
+        bookingService.approveBooking(booking.getId(), true, ownerId);
+        itemService.addComment(savedItem.getId(), CreateCommentDto.builder().text("Отлично").build(), bookerId);
+
+        // порог в тестах нулевой: арендатор скрыт сразу, его бронирование и комментарий ждут очистки
+        userService.deleteUser(bookerId);
+
+        assertThat(bookingService.getOwnerBookings(ownerId, "ALL", 0, 10)).isEmpty();
+        ItemDto card = itemService.getItemById(savedItem.getId(), ownerId);
+        assertThat(card.getLastBooking()).isNull();
+        assertThat(card.getComments()).isEmpty();
+
+        // бронирование, комментарий и сам арендатор
+        assertThat(tombstonePurger.purge()).isEqualTo(3);
+        entityManager.clear();
+        assertThat(itemService.getItemById(savedItem.getId(), ownerId).getCommentCount()).isZero();
+        assertThat(bookingStatsService.getOwnerStats(ownerId).getAll()).isZero();
+    }
+
+    @Test
+    void getItemTag_ShouldChangeOnlyWhenItemChanges() {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Обычная дрель")
+                .available(true)
+                .build(), ownerId);
+
+        EntityTag first = itemService.getItemTag(savedItem.getId(), ownerId).orElseThrow();
+        EntityTag repeated = itemService.getItemTag(savedItem.getId(), ownerId).orElseThrow();
+        EntityTag listTag = itemService.getOwnerItemsTag(ownerId, 0, 10).orElseThrow();
+
+        assertThat(repeated.getValue()).isEqualTo(first.getValue());
+        assertThat(first.getValue()).doesNotStartWith("W/");
+        assertThat(listTag.getValue()).startsWith("W/");
+
+        itemService.updateItem(savedItem.getId(), Map.of("name", "Дрель Professional"), ownerId);
+
+        assertThat(itemService.getItemTag(savedItem.getId(), ownerId).orElseThrow().getValue())
+                .isNotEqualTo(first.getValue());
+        assertThat(itemService.getOwnerItemsTag(ownerId, 0, 10).orElseThrow().getValue())
+                .isNotEqualTo(listTag.getValue());
+        assertThat(itemService.getItemTag(999L, ownerId)).isEmpty();
+    }
+
+    @Test
+    void getItemById_ShouldAnswerNotModifiedUntilBookerChanges() throws Exception {
+        ItemDto savedItem = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Обычная дрель")
+                .available(true)
+                .build(), ownerId);
+        Long bookerId = userService.createUser(UserDto.builder()
+                .name("Арендатор")
+                .email("booker@test.com")
+                .build()).getId();
+        bookingService.createBooking(BookingDto.builder()
+                .itemId(savedItem.getId())
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build(), bookerId);
+
+        String etag = mockMvc.perform(get("/items/{itemId}", savedItem.getId())
+                        .header("X-Sharer-User-Id", ownerId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/items/{itemId}", savedItem.getId())
+                        .header("X-Sharer-User-Id", ownerId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // версия арендатора входит в тег карточки
+        userService.updateUser(bookerId, Map.of("name", "Арендатор Петров"));
+
+        mockMvc.perform(get("/items/{itemId}", savedItem.getId())
+                        .header("X-Sharer-User-Id", ownerId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
 }
@@ -0,0 +1,179 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.event.BookingEvent;
+import ru.practicum.shareit.booking.event.BookingEventType;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.common.TombstonePurger;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.notification.service.NotificationHub;
+import ru.practicum.shareit.outbox.repository.OutboxEventRepository;
+import ru.practicum.shareit.request.dto.CreateItemRequestDto;
+import ru.practicum.shareit.request.event.ItemRequestCreatedEvent;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@RecordApplicationEvents
+@AutoConfigureMockMvc
+public class NotificationTest extends IntegrationTest {
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TombstonePurger tombstonePurger;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private NotificationHub notificationHub;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemRequestService itemRequestService;
+
+    @Autowired
+    private UserService userService;
+
+    private Long ownerId;
+    private Long bookerId;
+    private Long itemId;
+
+    @BeforeEach
+    void setUp() {
+        ownerId = userService.createUser(UserDto.builder()
+                .name("Владелец")
+                .email("owner@test.com")
+                .build()).getId();
+
+        bookerId = userService.createUser(UserDto.builder()
+                .name("Бронирующий")
+                .email("booker@test.com")
+                .build()).getId();
+
+        itemId = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId).getId();
+    }
+
+    @Test
+    void bookingLifecycle_ShouldPublishEventsForOwnerAndBooker() {
+        BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build(), bookerId);
+
+        bookingService.approveBooking(booking.getId(), true, ownerId);
+
+        List<BookingEvent> bookingEvents = events.stream(BookingEvent.class).toList();
+
+        assertThat(bookingEvents).extracting(BookingEvent::getType)
+                .containsExactly(BookingEventType.CREATED, BookingEventType.APPROVED);
+        assertThat(bookingEvents).allSatisfy(event -> {
+            assertThat(event.getBookingId()).isEqualTo(booking.getId());
+            assertThat(event.getOwnerId()).isEqualTo(ownerId);
+            assertThat(event.getBookerId()).isEqualTo(bookerId);
+        });
+    }
+
+    @Test
+    void approveBooking_ShouldDeliverNotificationToSubscribedBookerAfterCommit() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/notifications/stream").header("X-Sharer-User-Id", bookerId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                .itemId(itemId)
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build(), bookerId);
+        bookingService.approveBooking(booking.getId(), true, ownerId);
+
+        // до фиксации транзакции уведомление не отправляется
+        assertThat(stream.getResponse().getContentAsString()).doesNotContain("BOOKING_APPROVED");
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            // строки события и данных пишутся в поток по отдельности: ждем пустую строку, завершающую кадр
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            String frame = approvedFrame(stream.getResponse().getContentAsString());
+            while (frame == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                frame = approvedFrame(stream.getResponse().getContentAsString());
+            }
+            assertThat(frame).as("кадр BOOKING_APPROVED не пришел целиком за 5 с").isNotNull();
+            assertThat(frame).contains("\"bookingId\":" + booking.getId());
+        } finally {
+            // данные теста зафиксированы: удаляем их через сервисы, чтобы освободились и адреса почты
+            TestTransaction.start();
+            userService.deleteUser(ownerId);
+            userService.deleteUser(bookerId);
+            tombstonePurger.purge();
+            outboxEventRepository.deleteAll();
+            TestTransaction.flagForCommit();
+        }
+    }
+
+    // полный кадр SSE с событием BOOKING_APPROVED или null, если он еще не дописан
+    private static String approvedFrame(String content) {
+        int start = content.indexOf("event:BOOKING_APPROVED");
+        if (start < 0) {
+            return null;
+        }
+        int end = content.indexOf("\n\n", start);
+        return end < 0 ? null : content.substring(start, end);
+    }
+
+    @Test
+    void createRequest_ShouldPublishItemRequestEvent() {
+        itemRequestService.createRequest(
+                CreateItemRequestDto.builder().description("Нужна дрель").build(), bookerId);
+
+        assertThat(events.stream(ItemRequestCreatedEvent.class))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getRequestorId()).isEqualTo(bookerId));
+    }
+
+    @Test
+    void subscribe_ShouldRegisterSubscriberPerUser() {
+        int before = notificationHub.getSubscriberCount(ownerId);
+
+        notificationHub.subscribe(ownerId);
+        notificationHub.subscribe(ownerId);
+
+        assertThat(notificationHub.getSubscriberCount(ownerId)).isEqualTo(before + 2);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.outbox.model.AggregateType;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.repository.OutboxEventRepository;
+import ru.practicum.shareit.outbox.service.OutboxRelay;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OutboxTest extends IntegrationTest {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserService userService;
+
+    private Long ownerId;
+    private Long bookerId;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+
+        ownerId = userService.createUser(UserDto.builder()
+                .name("Владелец")
+                .email("owner@test.com")
+                .build()).getId();
+
+        bookerId = userService.createUser(UserDto.builder()
+                .name("Бронирующий")
+                .email("booker@test.com")
+                .build()).getId();
+    }
+
+    @Test
+    void itemAndBookingChanges_ShouldBeRecordedInOrder() {
+        ItemDto item = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId);
+
+        itemService.updateItem(item.getId(), Map.of("name", "Дрель Pro"), ownerId);
+
+        BookingResponseDto booking = bookingService.createBooking(BookingDto.builder()
+                .itemId(item.getId())
+                .start(LocalDateTime.now().plusDays(1))
+                .end(LocalDateTime.now().plusDays(2))
+                .build(), bookerId);
+
+        bookingService.approveBooking(booking.getId(), false, ownerId);
+
+        List<OutboxEvent> events = outboxEventRepository.findAll().stream()
+                .sorted((e1, e2) -> e1.getId().compareTo(e2.getId()))
+                .toList();
+
+        assertThat(events).extracting(OutboxEvent::getAggregateType)
+                .containsExactly(AggregateType.ITEM, AggregateType.ITEM, AggregateType.BOOKING, AggregateType.BOOKING);
+        assertThat(events).extracting(OutboxEvent::getEventType)
+                .containsExactly("CREATED", "UPDATED", "CREATED", "REJECTED");
+        assertThat(events.get(1).getPayload()).contains("Дрель Pro");
+    }
+
+    @Test
+    void relay_ShouldDrainOutbox() {
+        ItemDto item = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId);
+        itemService.deleteItem(item.getId(), ownerId);
+
+        assertThat(outboxEventRepository.count()).isEqualTo(2);
+
+        int relayed = outboxRelay.relay();
+
+        assertThat(relayed).isEqualTo(2);
+        assertThat(outboxEventRepository.count()).isZero();
+    }
+
+    @Test
+    void relay_ShouldPublishEventsOfEachAggregateInOrder() {
+        Long firstId = itemService.createItem(ItemDto.builder()
+                .name("Дрель")
+                .description("Аккумуляторная дрель")
+                .available(true)
+                .build(), ownerId).getId();
+        Long secondId = itemService.createItem(ItemDto.builder()
+                .name("Пила")
+                .description("Циркулярная пила")
+                .available(true)
+                .build(), ownerId).getId();
+        itemService.updateItem(firstId, Map.of("name", "Дрель Pro"), ownerId);
+        itemService.updateItem(secondId, Map.of("name", "Пила Pro"), ownerId);
+        itemService.deleteItem(firstId, ownerId);
+
+        List<OutboxEvent> published = new ArrayList<>();
+        OutboxRelay relay = new OutboxRelay(outboxEventRepository, published::addAll,
+                transactionTemplate, shardRouter, new SimpleMeterRegistry(), false, 1, 10);
+
+        assertThat(relay.relay()).isEqualTo(5);
+        assertThat(published).filteredOn(event -> event.getAggregateId().equals(firstId))
+                .extracting(OutboxEvent::getEventType)
+                .containsExactly("CREATED", "UPDATED", "DELETED");
+        assertThat(published).filteredOn(event -> event.getAggregateId().equals(secondId))
+                .extracting(OutboxEvent::getEventType)
+                .containsExactly("CREATED", "UPDATED");
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.ratelimit.RateLimitFilter;
+import ru.practicum.shareit.ratelimit.RateLimitProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitTest extends IntegrationTest {
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> calls.incrementAndGet();
+
+    @Test
+    void search_ShouldRejectWithRetryAfter_WhenRouteBudgetIsExhausted() throws Exception {
+        String userId = randomUserId();
+
+        // емкость маршрута search - 10 запросов подряд
+        for (int i = 0; i < 10; i++) {
+            assertThat(get("/items/search", userId).getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse rejected = get("/items/search", userId);
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isPositive();
+        assertThat(calls).hasValue(10);
+
+        // у другого маршрута и у другого пользователя свои корзины
+        assertThat(get("/items/1", userId).getStatus()).isEqualTo(200);
+        assertThat(get("/items/search", randomUserId()).getStatus()).isEqualTo(200);
+        assertThat(calls).hasValue(12);
+    }
+
+    @Test
+    void nonNumericUser_ShouldBeRejectedWithoutBucket() throws Exception {
+        assertThat(get("/items/search", "abc").getStatus()).isEqualTo(400);
+        assertThat(get("/items/search", "-5").getStatus()).isEqualTo(400);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void fullBucketTable_ShouldShareOneStrictBucketBetweenNewUsers() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxKeys(1);
+        // корзины почти не пополняются, поэтому и не вытесняются как полные
+        properties.getDefaultBudget().setCapacity(2);
+        properties.getDefaultBudget().setRefillPerSecond(0.001);
+        RateLimitFilter filter = new RateLimitFilter(properties, objectMapper, new SimpleMeterRegistry());
+
+        assertThat(get(filter, "/items/1", "1").getStatus()).isEqualTo(200);
+        // таблица заполнена: новые пользователи делят общую корзину, а не получают отказ все сразу
+        assertThat(get(filter, "/items/1", "2").getStatus()).isEqualTo(200);
+        assertThat(get(filter, "/items/1", "3").getStatus()).isEqualTo(200);
+        assertThat(get(filter, "/items/1", "4").getStatus()).isEqualTo(429);
+        // у пользователя, чья корзина уже в таблице, свой бюджет
+        assertThat(get(filter, "/items/1", "1").getStatus()).isEqualTo(200);
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void graphQl_ShouldNotSpendCreateBudget() throws Exception {
+        String userId = randomUserId();
+
+        // емкость маршрута create - 20 запросов подряд
+        for (int i = 0; i < 20; i++) {
+            assertThat(send("POST", "/items", userId).getStatus()).isEqualTo(200);
+        }
+        assertThat(send("POST", "/bookings", userId).getStatus()).isEqualTo(429);
+
+        assertThat(send("POST", "/graphql", userId).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse get(String path, String userId) throws Exception {
+        return get(rateLimitFilter, path, userId);
+    }
+
+    private MockHttpServletResponse get(RateLimitFilter filter, String path, String userId) throws Exception {
+        return send(filter, "GET", path, userId);
+    }
+
+    private MockHttpServletResponse send(String method, String path, String userId) throws Exception {
+        return send(rateLimitFilter, method, path, userId);
+    }
+
+    private MockHttpServletResponse send(RateLimitFilter filter, String method, String path, String userId)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader("X-Sharer-User-Id", userId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static String randomUserId() {
+        return Long.toString(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE));
+    }
+}
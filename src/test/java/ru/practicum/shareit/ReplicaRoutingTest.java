@@ -0,0 +1,55 @@
+package ru.practicum.shareit;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.config.ReplicaLagMonitor;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// вторым экземпляром выступает тот же H2 в памяти, открытый отдельным пулом
+@SpringBootTest(properties = "shareit.datasource.replica.url=jdbc:h2:mem:shareit;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class ReplicaRoutingTest {
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void readOnlyTransactions_ShouldUseReplicaPool_AndWritesPrimary() {
+        replicaLagMonitor.check();
+        assertThat(replicaLagMonitor.isReplicaUsable()).isTrue();
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Integer replicaConnectionsInRead = readOnly.execute(status -> {
+            userRepository.count();
+            return replicaDataSource.getHikariPoolMXBean().getActiveConnections();
+        });
+
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        Integer replicaConnectionsInWrite = readWrite.execute(status -> {
+            userRepository.count();
+            return replicaDataSource.getHikariPoolMXBean().getActiveConnections();
+        });
+
+        assertThat(replicaConnectionsInRead).isEqualTo(1);
+        assertThat(replicaConnectionsInWrite).isZero();
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+public class SerializationTest extends IntegrationTest {
+
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Test
+    void ownerItemListing_ShouldBeSmallerInSmileAndGzip() throws IOException {
+        List<ItemDto> items = IntStream.rangeClosed(1, 50)
+                .mapToObj(this::item)
+                .toList();
+
+        ObjectMapper smileMapper = smileConverter.getObjectMapper();
+
+        byte[] json = objectMapper.writeValueAsBytes(items);
+        byte[] smile = smileMapper.writeValueAsBytes(items);
+        byte[] gzippedJson = gzip(json);
+
+        long jsonNanos = measure(() -> objectMapper.writeValueAsBytes(items));
+        long smileNanos = measure(() -> smileMapper.writeValueAsBytes(items));
+
+        log.info("Список из {} вещей: JSON {} байт ({} мкс), JSON+gzip {} байт, Smile {} байт ({} мкс)",
+                items.size(), json.length, jsonNanos / 1000, gzippedJson.length, smile.length, smileNanos / 1000);
+
+        assertThat(smile.length).isLessThan(json.length);
+        assertThat(gzippedJson.length).isLessThan(json.length);
+        assertThat(smileMapper.readValue(smile, ItemDto[].class)).hasSize(items.size());
+    }
+
+    private ItemDto item(int id) {
+        LocalDateTime now = LocalDateTime.now();
+        BookingResponseDto booking = BookingResponseDto.builder()
+                .id((long) id)
+                .start(now.minusDays(2))
+                .end(now.minusDays(1))
+                .status(BookingStatus.APPROVED)
+                .booker(BookingResponseDto.BookerDto.builder().id(2L).name("Бронирующий").build())
+                .item(BookingResponseDto.ItemDto.builder().id((long) id).name("Дрель " + id).available(true).build())
+                .build();
+
+        return ItemDto.builder()
+                .id((long) id)
+                .name("Дрель " + id)
+                .description("Аккумуляторная дрель с двумя батареями")
+                .available(true)
+                .ownerId(1L)
+                .lastBooking(booking)
+                .comments(IntStream.rangeClosed(1, 5)
+                        .mapToObj(c -> CommentDto.builder()
+                                .id((long) c)
+                                .text("Отличная дрель, рекомендую")
+                                .authorName("Бронирующий")
+                                .created(now)
+                                .build())
+                        .toList())
+                .commentCount(5L)
+                .build();
+    }
+
+    // среднее время одной сериализации после прогрева
+    private long measure(ThrowingRunnable action) throws IOException {
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - started) / ITERATIONS;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// два шарда на отдельных базах H2; без тестовой транзакции, иначе все запросы шли бы через одно соединение
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "shareit.sharding.shard-count=2",
+        "shareit.sharding.shards[0].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;"
+                + "INIT=RUNSCRIPT FROM 'classpath:schema.sql'"
+})
+public class ShardRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void createItem_ShouldLandOnOwnerShard_WhenOwnerBelongsToSecondShard() throws Exception {
+        // пользователи живут на шарде 0; владелец берется с нечетным id, то есть с вещами на шарде 1
+        UserDto owner = userService.createUser(UserDto.builder().name("Первый").email("first@test.com").build());
+        if (shardRouter.shardOf(owner.getId()) != 1) {
+            owner = userService.createUser(UserDto.builder().name("Второй").email("second@test.com").build());
+        }
+        Long ownerId = owner.getId();
+        // справочник пользователей реплицирует база; в тесте строка копируется вручную
+        UserDto copy = owner;
+        shardRouter.onShard(1, () -> jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)",
+                copy.getId(), copy.getName(), copy.getEmail()));
+
+        String body = mockMvc.perform(post("/items")
+                        .header("X-Sharer-User-Id", ownerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Дрель\",\"description\":\"Ударная\",\"available\":true}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(body);
+        Long itemId = created.get("id").asLong();
+
+        assertThat(shardRouter.shardOf(itemId)).isEqualTo(1);
+        assertThat(shardRouter.readOnShard(1, () -> itemRepository.existsById(itemId))).isTrue();
+        assertThat(shardRouter.readOnShard(0, () -> itemRepository.existsById(itemId))).isFalse();
+
+        mockMvc.perform(get("/items/{itemId}", itemId)
+                        .header("X-Sharer-User-Id", ownerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Дрель"));
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardingTest extends IntegrationTest {
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void scatterGather_ShouldQueryEveryShardAndMergeByOrder() {
+        ShardRouter router = new ShardRouter(3, transactionManager);
+        try {
+            // шард k отдает убывающий список 9-k, 6-k, 3-k; номер берется из контекста потока
+            List<Integer> merged = router.scatterGather(shard -> {
+                int current = ShardContext.current();
+                return List.of(9 - current, 6 - current, 3 - current);
+            }, Comparator.<Integer>reverseOrder());
+
+            assertThat(merged).containsExactly(9, 8, 7, 6, 5, 4, 3, 2, 1);
+            assertThat(router.shardOf(7L)).isEqualTo(1);
+            assertThat(router.shardOf(9L)).isZero();
+        } finally {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void singleShard_ShouldRunQueryInPlace() {
+        assertThat(shardRouter.getShardCount()).isEqualTo(1);
+        assertThat(shardRouter.scatterGather(shard -> List.of(shard), Comparator.<Integer>naturalOrder()))
+                .containsExactly(0);
+    }
+}
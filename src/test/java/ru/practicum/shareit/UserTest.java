@@ -2,20 +2,44 @@ package ru.practicum.shareit;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.common.ExportFormat;
+import ru.practicum.shareit.exception.GlobalExceptionHandler;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserExportService;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 
 public class UserTest extends IntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GlobalExceptionHandler exceptionHandler;
+
     @Test
     void createUser_ShouldSaveUser_WhenDataIsValid() {
         UserDto userDto = UserDto.builder()
@@ -53,6 +77,54 @@ public class UserTest extends IntegrationTest {
                 .hasMessageContaining("уже используется");
     }
 
+    @Test
+    void dataIntegrityViolation_ShouldBeConflictOnlyForDuplicateEmail() {
+        String insert = "INSERT INTO users (name, email, version, updated) VALUES (?, ?, 0, CURRENT_TIMESTAMP)";
+        jdbcTemplate.update(insert, "Первый", "race@example.com");
+
+        DataIntegrityViolationException duplicate = catchThrowableOfType(
+                () -> jdbcTemplate.update(insert, "Второй", "race@example.com"),
+                DataIntegrityViolationException.class);
+        assertThat(exceptionHandler.handleDataIntegrity(duplicate).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+        DataIntegrityViolationException missingName = catchThrowableOfType(
+                () -> jdbcTemplate.update(insert, null, "noname@example.com"),
+                DataIntegrityViolationException.class);
+        assertThat(exceptionHandler.handleDataIntegrity(missingName).getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void createUser_ShouldTreatEmailCaseInsensitively_AndReleaseItOnRollback() {
+        UserDto created = userService.createUser(UserDto.builder()
+                .name("Иван Петров")
+                .email("Mixed.Case@Example.com")
+                .build());
+
+        assertThat(created.getEmail()).isEqualTo("mixed.case@example.com");
+        assertThatThrownBy(() -> userService.createUser(UserDto.builder()
+                .name("Петр Иванов")
+                .email("MIXED.CASE@example.com")
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("уже используется");
+
+        TransactionTemplate rolledBack = new TransactionTemplate(transactionManager);
+        rolledBack.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        rolledBack.executeWithoutResult(status -> {
+            userService.createUser(UserDto.builder()
+                    .name("Отмененный")
+                    .email("rollback@example.com")
+                    .build());
+            status.setRollbackOnly();
+        });
+
+        assertThat(userService.createUser(UserDto.builder()
+                .name("Сохраненный")
+                .email("rollback@example.com")
+                .build()).getId()).isNotNull();
+    }
+
     @Test
     void getUserById_ShouldReturnUser_WhenUserExists() {
         UserDto userDto = UserDto.builder()
@@ -123,13 +195,63 @@ public class UserTest extends IntegrationTest {
         userService.createUser(user2);
         userService.createUser(user3);
 
-        List<UserDto> allUsers = userService.getAllUsers();
+        List<UserDto> allUsers = userService.getUsers(null, null, null, 10);
 
         assertThat(allUsers).hasSize(3);
         assertThat(allUsers).extracting(UserDto::getName)
                 .containsExactlyInAnyOrder("User 1", "User 2", "User 3");
     }
 
+    @Test
+    void getUsers_ShouldPageByIdAndFilterByPrefix() {
+        for (int i = 1; i <= 5; i++) {
+            userService.createUser(UserDto.builder().name("Page " + i).email("page" + i + "@test.com").build());
+        }
+        userService.createUser(UserDto.builder().name("Other_user").email("other@test.com").build());
+
+        List<UserDto> first = userService.getUsers(null, "page", null, 2);
+        List<UserDto> second = userService.getUsers(first.get(1).getId(), "page", null, 2);
+        List<UserDto> third = userService.getUsers(second.get(1).getId(), "page", null, 2);
+
+        assertThat(first).extracting(UserDto::getName).containsExactly("Page 1", "Page 2");
+        assertThat(second).extracting(UserDto::getName).containsExactly("Page 3", "Page 4");
+        assertThat(third).extracting(UserDto::getName).containsExactly("Page 5");
+
+        assertThat(userService.getUsers(null, null, "OTHER@", 10)).extracting(UserDto::getName)
+                .containsExactly("Other_user");
+        // '_' в префиксе - обычный символ, а не шаблон LIKE
+        assertThat(userService.getUsers(null, "page_", null, 10)).isEmpty();
+    }
+
+    @Test
+    void getUsersByIds_ShouldReturnFoundUsersInRequestOrderWithoutDuplicates() {
+        Long first = userService.createUser(UserDto.builder().name("Первый").email("first@test.com").build()).getId();
+        userService.createUser(UserDto.builder().name("Второй").email("second@test.com").build());
+        Long third = userService.createUser(UserDto.builder().name("Третий").email("third@test.com").build()).getId();
+
+        List<UserDto> users = userService.getUsersByIds(List.of(third, first, third, 999_999L));
+
+        assertThat(users).extracting(UserDto::getName).containsExactly("Третий", "Первый");
+    }
+
+    @Test
+    void exportUsers_ShouldStreamEveryUser() {
+        userService.createUser(UserDto.builder().name("Иванов, Иван").email("ivanov@test.com").build());
+        userService.createUser(UserDto.builder().name("Петров").email("petrov@test.com").build());
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        userExportService.exportUsers(ExportFormat.CSV, csv);
+
+        assertThat(csv.toString(StandardCharsets.UTF_8).lines().toList()).hasSize(3)
+                .contains("id,name,email")
+                .anyMatch(line -> line.endsWith(",\"Иванов, Иван\",ivanov@test.com"));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        userExportService.exportUsers(ExportFormat.NDJSON, ndjson);
+
+        assertThat(ndjson.toString(StandardCharsets.UTF_8).lines().toList()).hasSize(2);
+    }
+
     @Test
     void deleteUser_ShouldRemoveUser_WhenUserExists() {
 